@@ -3,6 +3,7 @@ package dev.peter.authserver.config;
 import dev.peter.authserver.repository.CustomerRegisteredClientRepository;
 import dev.peter.authserver.repository.CustomerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -12,6 +13,8 @@ import org.springframework.security.oauth2.server.authorization.client.Registere
 import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
 
+import java.time.Duration;
+
 @Configuration
 public class ApplicationConfig {
 
@@ -24,16 +27,20 @@ public class ApplicationConfig {
     }
 
     @Bean
-    RegisteredClientRepository inMemoryRegisteredClientRepository() {
-        return new CustomerRegisteredClientRepository(customerRepository);
+    RegisteredClientRepository inMemoryRegisteredClientRepository(
+            @Value("${app.clients.cache.maximum-size:10000}") long maximumSize,
+            @Value("${app.clients.cache.ttl:5m}") Duration ttl
+    ) {
+        return new CustomerRegisteredClientRepository(customerRepository, maximumSize, ttl);
     }
 
+    // the client was already resolved to authenticate the token request
     @Bean
-    public OAuth2TokenCustomizer<JwtEncodingContext> jwtTokenCustomizer(RegisteredClientRepository registeredClientRepository) {
+    public OAuth2TokenCustomizer<JwtEncodingContext> jwtTokenCustomizer() {
         return (context) -> {
             if (OAuth2TokenType.ACCESS_TOKEN.equals(context.getTokenType())) {
                 context.getClaims().claims((claims) -> {
-                    claims.put("id", registeredClientRepository.findByClientId(claims.get("sub").toString()).getId());
+                    claims.put("id", context.getRegisteredClient().getId());
                 });
             }
         };
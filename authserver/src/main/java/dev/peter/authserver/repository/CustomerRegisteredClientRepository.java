@@ -1,5 +1,7 @@
 package dev.peter.authserver.repository;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.peter.authserver.model.Customer;
 import dev.peter.authserver.model.Role;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
@@ -7,6 +9,7 @@ import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,9 +17,21 @@ public class CustomerRegisteredClientRepository implements RegisteredClientRepos
 
     private final CustomerRepository customerRepository;
 
+    // built clients by client id and by id, a token request looks a client up more than once
+    private final Cache<String, RegisteredClient> clientsByClientId;
 
-    public CustomerRegisteredClientRepository(CustomerRepository customerRepository) {
+    private final Cache<String, RegisteredClient> clientsById;
+
+    public CustomerRegisteredClientRepository(CustomerRepository customerRepository, long maximumSize, Duration ttl) {
         this.customerRepository = customerRepository;
+        this.clientsByClientId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.clientsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
     }
 
     @Override
@@ -29,34 +44,36 @@ public class CustomerRegisteredClientRepository implements RegisteredClientRepos
 
         customerRepository.save(customer);
 
+        clientsByClientId.invalidate(registeredClient.getClientId());
+        clientsById.invalidate(registeredClient.getId());
+        if (customer.getId() != null) {
+            clientsById.invalidate(customer.getId().toString());
+        }
     }
 
     @Override
     public RegisteredClient findById(String id) {
-        Customer customer = customerRepository.findById(Integer.valueOf(id))
-                .orElseThrow(() -> new RuntimeException("Client not found"));
-
-        Set<String> scopes = new HashSet<>();
-        scopes.add("user.read");
-        if (customer.getRole().equals(Role.ADMIN)) {
-            scopes.add("user.write");
-        }
-
-        return RegisteredClient
-                .withId(customer.getId().toString())
-                .clientId(customer.getUsername())
-                .clientSecret(customer.getPassword())
-                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
-                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
-                .scopes(strings -> strings.addAll(scopes))
-                .build();
+        return clientsById.get(id, key -> {
+            Customer customer = customerRepository.findById(Integer.valueOf(key))
+                    .orElseThrow(() -> new RuntimeException("Client not found"));
+            RegisteredClient registeredClient = toRegisteredClient(customer);
+            clientsByClientId.put(registeredClient.getClientId(), registeredClient);
+            return registeredClient;
+        });
     }
 
     @Override
     public RegisteredClient findByClientId(String clientId) {
-        Customer customer = customerRepository.findByUsername(clientId)
-                .orElseThrow(() -> new RuntimeException("Client not found"));
+        return clientsByClientId.get(clientId, key -> {
+            Customer customer = customerRepository.findByUsername(key)
+                    .orElseThrow(() -> new RuntimeException("Client not found"));
+            RegisteredClient registeredClient = toRegisteredClient(customer);
+            clientsById.put(registeredClient.getId(), registeredClient);
+            return registeredClient;
+        });
+    }
 
+    private static RegisteredClient toRegisteredClient(Customer customer) {
         Set<String> scopes = new HashSet<>();
         scopes.add("user.read");
         if (customer.getRole().equals(Role.ADMIN)) {
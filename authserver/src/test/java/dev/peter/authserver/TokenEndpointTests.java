@@ -0,0 +1,92 @@
+package dev.peter.authserver;
+
+import dev.peter.authserver.model.Customer;
+import dev.peter.authserver.model.Role;
+import dev.peter.authserver.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// token requests against a mocked customer table, the database is not needed to count client lookups.
+// throughput is measured by benchmark.TokenEndpointBenchmark
+@SpringBootTest(properties = "spring.autoconfigure.exclude="
+		+ "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+		+ "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration,"
+		+ "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration")
+@AutoConfigureMockMvc
+class TokenEndpointTests {
+
+	private static final int REQUESTS = 20;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private CustomerRepository customerRepository;
+
+	@BeforeEach
+	void setUp() {
+		// low cost hash, keeps the repeated requests fast
+		String secret = new BCryptPasswordEncoder(4).encode("secret");
+		when(customerRepository.findByUsername("client"))
+				.thenReturn(Optional.of(new Customer(1, "client", secret, Role.ADMIN)));
+	}
+
+	private String requestToken() throws Exception {
+		return mockMvc.perform(post("/oauth2/token")
+						.header(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder()
+								.encodeToString("client:secret".getBytes(StandardCharsets.UTF_8)))
+						.param("grant_type", "client_credentials")
+						.param("scope", "user.read user.write"))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+	}
+
+	@Test
+	void givenRegisteredClient_whenRequestTokens_thenLoadClientOnce() throws Exception {
+		// given
+		requestToken();
+
+		// when
+		for (int i = 0; i < REQUESTS; i++) {
+			requestToken();
+		}
+
+		// then
+		// the client is cached for the context, an earlier test may already have loaded it
+		verify(customerRepository, atMost(1)).findByUsername("client");
+		verify(customerRepository, never()).findById(1);
+	}
+
+	@Test
+	void givenRegisteredClient_whenRequestToken_thenTokenContainsClientId() throws Exception {
+		// given
+		// when
+		String response = requestToken();
+
+		// then
+		String token = response.replaceAll(".*\"access_token\":\"([^\"]+)\".*", "$1");
+		String claims = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+		assertThat(claims).contains("\"id\":\"1\"");
+	}
+}
@@ -0,0 +1,109 @@
+package dev.peter.authserver.benchmark;
+
+import dev.peter.authserver.AuthserverApplication;
+import dev.peter.authserver.model.Customer;
+import dev.peter.authserver.model.Role;
+import dev.peter.authserver.repository.CustomerRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// client credentials token requests per second against a running server and a mocked customer table.
+// the client is loaded once and cached, so this measures client authentication, token generation and signing.
+// run in authserver with: ../mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=dev.peter.authserver.benchmark.TokenEndpointBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenEndpointBenchmark {
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient httpClient;
+
+	private HttpRequest tokenRequest;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, InterruptedException {
+		// low cost hash, the benchmark measures the endpoint and not bcrypt
+		String secret = new BCryptPasswordEncoder(4).encode("secret");
+		CustomerRepository customerRepository = Mockito.mock(CustomerRepository.class);
+		Mockito.when(customerRepository.findByUsername("client"))
+				.thenReturn(Optional.of(new Customer(1, "client", secret, Role.ADMIN)));
+		ApplicationContextInitializer<ConfigurableApplicationContext> mockedRepository = applicationContext ->
+				applicationContext.getBeanFactory().registerSingleton("customerRepository", customerRepository);
+
+		context = new SpringApplicationBuilder(AuthserverApplication.class)
+				.properties(
+						"server.port=0",
+						"logging.level.org.springframework.security=warn",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration")
+				.initializers(mockedRepository)
+				.run();
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+		httpClient = HttpClient.newHttpClient();
+		tokenRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/oauth2/token"))
+				.header(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder()
+						.encodeToString("client:secret".getBytes(StandardCharsets.UTF_8)))
+				.header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString("grant_type=client_credentials&scope=user.read%20user.write"))
+				.build();
+
+		HttpResponse<String> response = httpClient.send(tokenRequest, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Token request failed with " + response.statusCode() + ": " + response.body());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public String requestToken() throws IOException, InterruptedException {
+		return httpClient.send(tokenRequest, HttpResponse.BodyHandlers.ofString()).body();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(TokenEndpointBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
@@ -1,8 +1,8 @@
 import { Component, OnInit } from '@angular/core';
 import { FlightService } from '../service/flight.service';
-import { CommonModule, JsonPipe } from '@angular/common';
+import { CommonModule } from '@angular/common';
 import { Flight } from '../model/flight';
-import { HttpErrorResponse, HttpEventType } from '@angular/common/http';
+import { HttpErrorResponse } from '@angular/common/http';
 import { FlightRequest } from '../dto/flightRequest';
 import { ActivatedRoute } from '@angular/router';
 import { CustomerService } from '../service/customer.service';
@@ -35,111 +35,10 @@ export class SearchComponent implements OnInit {
       this.failed = true;
       return;
     }
-    if (this.searchData.startDate === undefined) {
-      if (
-        this.searchData.endLocation === '' ||
-        this.searchData.endLocation === undefined
-      ) {
-        this.flightService
-          .getFlightsByStartLocation(
-            this.searchData.startLocation!,
-            this.searchData.filterUnavailable
-          )
-          .subscribe({
-            next: (response: Flight[]) =>
-              (this.flights = [
-                ...new Set(response.map((item) => JSON.stringify(item))),
-              ].map((item) => JSON.parse(item))),
-            error: (error: HttpErrorResponse) => (this.failed = true),
-          });
-        return;
-      }
-      this.flightService
-        .getFlightsByEndLocation(
-          this.searchData.endLocation!,
-          this.searchData.filterUnavailable
-        )
-        .subscribe({
-          next: (response: Flight[]) =>
-            (this.flights = [
-              ...new Set(
-                [
-                  ...response.filter(
-                    (item) =>
-                      item.startLocation === this.searchData?.startLocation
-                  ),
-                ].map((item) => JSON.stringify(item))
-              ),
-            ].map((item) => JSON.parse(item))),
-          error: (error: HttpErrorResponse) => (this.failed = true),
-        });
-      return;
-    }
-    this.flightService
-      .getFlightsByTimeframe(
-        this.searchData.startDate! as Date,
-        this.searchData.endDate! as Date,
-        this.searchData.filterUnavailable
-      )
-      .subscribe({
-        next: (response: Flight[]) =>
-          (this.flights = [
-            ...new Set(response.map((item) => JSON.stringify(item))),
-          ].map((item) => JSON.parse(item))),
-        error: (error: HttpErrorResponse) => (this.failed = true),
-      });
-    if (
-      this.searchData.startLocation !== '' &&
-      this.searchData.startLocation !== undefined
-    ) {
-      this.flightService
-        .getFlightsByStartLocation(
-          this.searchData.startLocation!,
-          this.searchData.filterUnavailable
-        )
-        .subscribe({
-          next: (response: Flight[]) =>
-            (this.flights = [
-              ...new Set(
-                [
-                  ...this.flights,
-                  ...response.filter(
-                    (item) =>
-                      item.startDate === this.searchData?.startDate &&
-                      item.endDate === this.searchData.endDate
-                  ),
-                ].map((item) => JSON.stringify(item))
-              ),
-            ].map((item) => JSON.parse(item))),
-          error: (error: HttpErrorResponse) => (this.failed = true),
-        });
-    }
-    if (
-      this.searchData.endLocation !== '' &&
-      this.searchData.endLocation !== undefined
-    ) {
-      this.flightService
-        .getFlightsByEndLocation(
-          this.searchData.endLocation!,
-          this.searchData.filterUnavailable
-        )
-        .subscribe({
-          next: (response: Flight[]) =>
-            (this.flights = [
-              ...new Set(
-                [
-                  ...this.flights,
-                  ...response.filter(
-                    (item) =>
-                      item.startDate === this.searchData?.startDate &&
-                      item.endDate === this.searchData.endDate
-                  ),
-                ].map((item) => JSON.stringify(item))
-              ),
-            ].map((item) => JSON.parse(item))),
-          error: (error: HttpErrorResponse) => (this.failed = true),
-        });
-    }
+    this.flightService.searchFlights(this.searchData).subscribe({
+      next: (response: Flight[]) => (this.flights = response),
+      error: (error: HttpErrorResponse) => (this.failed = true),
+    });
   }
 
   addBooking(flightId: number) {
@@ -1,6 +1,6 @@
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams, HttpResponse } from '@angular/common/http';
 import { Injectable } from '@angular/core';
-import { Observable, of } from 'rxjs';
+import { EMPTY, Observable, expand, map, of, reduce } from 'rxjs';
 import { Flight } from '../model/flight';
 import { FlightRequest } from '../dto/flightRequest';
 
@@ -11,26 +11,57 @@ export class FlightService {
 
   private apiUrl = "http://localhost:8080/v1/api";
 
+  private nextCursorHeader = "X-Next-Cursor";
+
   constructor(private http: HttpClient) { }
 
   getFlightsByStartLocation(startLocation: string, isFiltered: boolean = false) : Observable<Flight[]> {
     if (startLocation === undefined) {
       return of([]);
     }
-    return this.http.get<Flight[]>(`${this.apiUrl}/flights?startLocation=${startLocation}&filterUnavailable=${isFiltered}`);
+    return this.getAllPages(`${this.apiUrl}/flights`, new HttpParams()
+      .set('startLocation', startLocation)
+      .set('filterUnavailable', isFiltered));
   }
 
   getFlightsByEndLocation(endLocation: string, isFiltered: boolean = false) : Observable<Flight[]> {
     if (endLocation === undefined) {
       return of([]);
     }
-    return this.http.get<Flight[]>(`${this.apiUrl}/flights?endLocation=${endLocation}&filterUnavailable=${isFiltered}`);
+    return this.getAllPages(`${this.apiUrl}/flights`, new HttpParams()
+      .set('endLocation', endLocation)
+      .set('filterUnavailable', isFiltered));
   }
 
   getFlightsByTimeframe(startDate: Date, endDate: Date, isFiltered: boolean = false) : Observable<Flight[]> {
     if (startDate === undefined || endDate === undefined) {
       return of([]);
     }
-    return this.http.get<Flight[]>(`${this.apiUrl}/flights?startDate=${startDate}&endDate=${endDate}&filterUnavailable=${isFiltered}`);
+    return this.getAllPages(`${this.apiUrl}/flights`, new HttpParams()
+      .set('startDate', `${startDate}`)
+      .set('endDate', `${endDate}`)
+      .set('filterUnavailable', isFiltered));
+  }
+
+  searchFlights(searchData: FlightRequest) : Observable<Flight[]> {
+    let params = new HttpParams();
+    Object.entries(searchData)
+      .filter(([, value]) => value !== undefined && value !== null && value !== '')
+      .forEach(([key, value]) => (params = params.set(key, `${value}`)));
+    return this.getAllPages(`${this.apiUrl}/flights/search`, params);
+  }
+
+  // the api returns flights in pages, follow the next cursor header until the last page
+  private getAllPages(url: string, params: HttpParams) : Observable<Flight[]> {
+    const getPage = (pageParams: HttpParams) =>
+      this.http.get<Flight[]>(url, { params: pageParams, observe: 'response' });
+    return getPage(params).pipe(
+      expand((response: HttpResponse<Flight[]>) => {
+        const cursor = response.headers.get(this.nextCursorHeader);
+        return cursor ? getPage(params.set('cursor', cursor)) : EMPTY;
+      }),
+      map(response => response.body ?? []),
+      reduce((flights: Flight[], page: Flight[]) => flights.concat(page), [])
+    );
   }
 }
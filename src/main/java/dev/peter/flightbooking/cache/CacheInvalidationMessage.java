@@ -0,0 +1,9 @@
+package dev.peter.flightbooking.cache;
+
+// key is null when the whole cache was cleared
+public record CacheInvalidationMessage(String nodeId, String cacheName, String key) {
+
+    public boolean isClear() {
+        return key == null;
+    }
+}
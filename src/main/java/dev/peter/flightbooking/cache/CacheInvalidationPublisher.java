@@ -0,0 +1,50 @@
+package dev.peter.flightbooking.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+
+public class CacheInvalidationPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationPublisher.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final String channel;
+
+    public CacheInvalidationPublisher(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    // for publishing as part of a redis pipeline
+    public byte[] encode(String cacheName, String key) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new CacheInvalidationMessage(nodeId, cacheName, key));
+    }
+
+    public void publish(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(new CacheInvalidationMessage(nodeId, cacheName, key)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // other nodes fall back to the local entry expiry
+            log.warn("Could not publish invalidation of cache {}", cacheName, e);
+        }
+    }
+}
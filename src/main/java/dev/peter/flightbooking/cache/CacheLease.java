@@ -0,0 +1,24 @@
+package dev.peter.flightbooking.cache;
+
+import java.time.Duration;
+
+// exclusive right to load a cache key, shared between application instances
+public interface CacheLease {
+
+    // single instance lease, always granted
+    CacheLease LOCAL = new CacheLease() {
+        @Override
+        public String tryAcquire(String key, Duration ttl) {
+            return "";
+        }
+
+        @Override
+        public void release(String key, String token) {
+        }
+    };
+
+    // returns the lease token, or null when the key is being loaded elsewhere
+    String tryAcquire(String key, Duration ttl);
+
+    void release(String key, String token);
+}
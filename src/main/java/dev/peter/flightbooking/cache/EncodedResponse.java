@@ -0,0 +1,10 @@
+package dev.peter.flightbooking.cache;
+
+// response body of a flight page as it is sent to clients, gzipBody is null for small bodies
+public record EncodedResponse(
+        byte[] body,
+
+        byte[] gzipBody,
+
+        String nextCursor
+) {}
@@ -0,0 +1,224 @@
+package dev.peter.flightbooking.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dev.peter.flightbooking.config.CacheTtlProperties;
+import dev.peter.flightbooking.config.RedisCacheConfig;
+import dev.peter.flightbooking.model.Flight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// evicts the cached pages of every route a changed flight left or joined. pages are indexed by route when loaded,
+// after commit the indexes of all changed routes are read in one pipeline and the pages deleted in a second one
+@Component
+public class FlightCacheInvalidator {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightCacheInvalidator.class);
+
+    private static final String INDEX_PREFIX = "flightbooking:cache-index:";
+
+    // invalidation count per route, one small field per route like the flight data versions
+    private static final String GENERATIONS_KEY = "flightbooking:cache-generations";
+
+    private static final List<String> INVALIDATED_CACHES = Stream.concat(
+            RedisCacheConfig.FLIGHT_PAGE_CACHES.stream(),
+            Stream.of(RedisCacheConfig.FLIGHT_RESPONSE_CACHE)
+    ).toList();
+
+    private record CachedKey(String cacheName, String key) {}
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    private final CacheTtlProperties ttlProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    public FlightCacheInvalidator(
+            StringRedisTemplate redisTemplate,
+            TwoLevelCacheManager cacheManager,
+            CacheInvalidationPublisher invalidationPublisher,
+            CacheTtlProperties ttlProperties,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+        this.invalidationPublisher = invalidationPublisher;
+        this.ttlProperties = ttlProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private static String indexKey(String cacheName, String route) {
+        return INDEX_PREFIX + cacheName + ":" + route;
+    }
+
+    // same layout as the redis cache manager's default key prefix
+    private static String redisKey(String cacheName, String key) {
+        return cacheName + "::" + key;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // the index outlives the entries written to it by at most one ttl
+    private void index(String cacheName, String route, String key) {
+        long ttlSeconds = ttlProperties.ttlFor(cacheName).toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sAdd(bytes(indexKey(cacheName, route)), bytes(key));
+                connection.keyCommands().expire(bytes(indexKey(cacheName, route)), ttlSeconds);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // an unindexed page is only evicted by its ttl
+            log.warn("Could not index {} entry {} under route {}", cacheName, key, route, e);
+        }
+    }
+
+    private Long generation(String route) {
+        try {
+            Object generation = redisTemplate.opsForHash().get(GENERATIONS_KEY, route);
+            return generation == null ? 0L : Long.parseLong((String) generation);
+        } catch (RuntimeException e) {
+            log.warn("Could not read cache generation of route {}", route, e);
+            return null;
+        }
+    }
+
+    // the page is indexed before it is loaded, so an invalidation after the put finds and deletes it.
+    // one between index and put finds the key before the page is stored, the generation it bumps has the loader
+    // evict the page again
+    public LoadGuard guard(String cacheName, String route, String key) {
+        return () -> {
+            Long generation = generation(route);
+            index(cacheName, route, key);
+            return () -> {
+                // an unknown generation is treated as changed, a missed eviction would serve stale data for a whole ttl
+                if (generation == null || !generation.equals(generation(route))) {
+                    meterRegistry.counter("flight.cache.raced.loads", "cache", cacheName).increment();
+                    evict(cacheName, key);
+                }
+            };
+        };
+    }
+
+    private void evict(String cacheName, String key) {
+        try {
+            cacheManager.getCache(cacheName).evict(key);
+        } catch (RuntimeException e) {
+            log.warn("Could not evict {} entry {} loaded during an invalidation", cacheName, key, e);
+        }
+    }
+
+    // before is null for inserted flights, after is null for deleted ones
+    public void flightChanged(Collection<String> before, Collection<String> after) {
+        Set<String> routes = new HashSet<>();
+        routes.add(FlightCacheKeys.ALL_FLIGHTS);
+        if (before != null) {
+            routes.addAll(before);
+        }
+        if (after != null) {
+            routes.addAll(after);
+        }
+        invalidateAfterCommit(routes);
+    }
+
+    // a booking only moves the seat count, so the pages listing the flight by location or time frame are evicted
+    // without the catch-all route. search pages keep their seat counts until they expire, booking checks the row itself
+    public void seatsChanged(Flight flight) {
+        Set<String> routes = FlightCacheKeys.routes(flight);
+        routes.remove(FlightCacheKeys.ALL_FLIGHTS);
+        invalidateAfterCommit(routes);
+    }
+
+    private void invalidateAfterCommit(Set<String> routes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(routes);
+            return;
+        }
+        // changes of one transaction are evicted together once it commits, readers never reload uncommitted state
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> transactionRoutes = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, transactionRoutes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FlightCacheInvalidator.this);
+                    if (status == STATUS_COMMITTED) {
+                        invalidate(transactionRoutes);
+                    }
+                }
+            });
+            pending = transactionRoutes;
+        }
+        pending.addAll(routes);
+    }
+
+    void invalidate(Set<String> routes) {
+        List<String> cacheNames = new ArrayList<>();
+        List<String> indexKeys = new ArrayList<>();
+        for (String cacheName : INVALIDATED_CACHES) {
+            for (String route : routes) {
+                cacheNames.add(cacheName);
+                indexKeys.add(indexKey(cacheName, route));
+            }
+        }
+
+        try {
+            List<Object> indexed = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                indexKeys.forEach(indexKey -> connection.setCommands().sMembers(bytes(indexKey)));
+                return null;
+            });
+            Set<CachedKey> keys = new HashSet<>();
+            for (int i = 0; i < indexed.size(); i++) {
+                String cacheName = cacheNames.get(i);
+                ((Collection<String>) indexed.get(i)).forEach(key -> keys.add(new CachedKey(cacheName, key)));
+            }
+
+            byte[] channel = bytes(invalidationPublisher.getChannel());
+            List<byte[]> messages = new ArrayList<>(keys.size());
+            for (CachedKey key : keys) {
+                messages.add(invalidationPublisher.encode(key.cacheName(), key.key()));
+            }
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                keys.forEach(key -> connection.keyCommands().del(bytes(redisKey(key.cacheName(), key.key()))));
+                indexKeys.forEach(indexKey -> connection.keyCommands().del(bytes(indexKey)));
+                routes.forEach(route -> connection.hashCommands().hIncrBy(bytes(GENERATIONS_KEY), bytes(route), 1));
+                messages.forEach(message -> connection.publish(channel, message));
+                return null;
+            });
+            keys.forEach(key -> cacheManager.evictLocal(key.cacheName(), key.key()));
+            meterRegistry.counter("flight.cache.invalidated.keys").increment(keys.size());
+        } catch (RuntimeException | JsonProcessingException e) {
+            // without the index the affected pages cannot be found, so the flight caches are dropped as a whole
+            log.warn("Could not evict cached pages of routes {}, clearing flight caches", routes, e);
+            INVALIDATED_CACHES.forEach(this::clear);
+        }
+    }
+
+    private void clear(String cacheName) {
+        try {
+            cacheManager.getCache(cacheName).clear();
+        } catch (RuntimeException e) {
+            log.warn("Could not clear cache {}", cacheName, e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.model.Flight;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
+
+// keys of the flight caches and the routes they are indexed by. a route names the flights a cached page can contain,
+// so a change of a flight evicts exactly the pages of the routes it left and joined
+public final class FlightCacheKeys {
+
+    // time frame and search results can change with any flight
+    public static final String ALL_FLIGHTS = "all";
+
+    private FlightCacheKeys() {
+    }
+
+    // string keys map one to one to redis keys, so indexed keys can be deleted without the cache abstraction
+    public static String key(Object... parts) {
+        return Arrays.stream(parts)
+                .map(part -> Objects.toString(part, ""))
+                .collect(Collectors.joining("|"));
+    }
+
+    // locations compare case insensitive in mysql, so do the routes
+    public static String startLocationRoute(String startLocation) {
+        return "startLocation:" + startLocation.toLowerCase(Locale.ROOT);
+    }
+
+    public static String endLocationRoute(String endLocation) {
+        return "endLocation:" + endLocation.toLowerCase(Locale.ROOT);
+    }
+
+    // time frame pages hold flights departing on startDay and arriving on endDay
+    public static String timeFrameRoute(String startDay, String endDay) {
+        return "timeFrame:" + startDay + "/" + endDay;
+    }
+
+    // every route a flight is listed on, including the catch-all one
+    public static Set<String> routes(Flight flight) {
+        return routes(flight.getStartLocation(), flight.getEndLocation(), flight.getStartDate(), flight.getEndDate());
+    }
+
+    public static Set<String> routes(String startLocation, String endLocation, Timestamp startDate, Timestamp endDate) {
+        Set<String> routes = new HashSet<>();
+        routes.add(ALL_FLIGHTS);
+        if (nonNull(startLocation)) {
+            routes.add(startLocationRoute(startLocation));
+        }
+        if (nonNull(endLocation)) {
+            routes.add(endLocationRoute(endLocation));
+        }
+        if (nonNull(startDate) && nonNull(endDate)) {
+            routes.add(timeFrameRoute(
+                    startDate.toLocalDateTime().toLocalDate().toString(),
+                    endDate.toLocalDateTime().toLocalDate().toString()
+            ));
+        }
+        return routes;
+    }
+}
@@ -0,0 +1,245 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// compact encoding of cached flight pages and encoded responses: [version][flags][type][fields...], the body optionally deflated.
+// other values are delegated to the json serializer
+public class FlightCacheSerializer implements RedisSerializer<Object> {
+
+    static final byte VERSION = 1;
+
+    static final byte FLAG_COMPRESSED = 1;
+
+    private static final byte TYPE_FLIGHTS = 1;
+
+    private static final byte TYPE_TIMESTAMPED_FLIGHTS = 2;
+
+    private static final byte TYPE_JSON = 3;
+
+    private static final byte TYPE_ENCODED_RESPONSE = 4;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_NAME = 1 << 1;
+    private static final int HAS_PRICE = 1 << 2;
+    private static final int HAS_START_DATE = 1 << 3;
+    private static final int HAS_END_DATE = 1 << 4;
+    private static final int HAS_START_LOCATION = 1 << 5;
+    private static final int HAS_END_LOCATION = 1 << 6;
+    private static final int HAS_CAPACITY = 1 << 7;
+    private static final int HAS_SEATS_REMAINING = 1 << 8;
+    private static final int IS_AVAILABLE = 1 << 9;
+
+    private final RedisSerializer<Object> jsonSerializer;
+
+    private final int compressionThreshold;
+
+    public FlightCacheSerializer(RedisSerializer<Object> jsonSerializer, int compressionThreshold) {
+        this.jsonSerializer = jsonSerializer;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            if (value instanceof TimestampedValue timestamped && isFlightList(timestamped.value())) {
+                out.writeByte(TYPE_TIMESTAMPED_FLIGHTS);
+                out.writeLong(timestamped.storedAt());
+                writeFlights(out, (List<?>) timestamped.value());
+            } else if (value instanceof EncodedResponse encoded) {
+                out.writeByte(TYPE_ENCODED_RESPONSE);
+                writeEncodedResponse(out, encoded);
+            } else if (isFlightList(value)) {
+                out.writeByte(TYPE_FLIGHTS);
+                writeFlights(out, (List<?>) value);
+            } else {
+                byte[] json = jsonSerializer.serialize(value);
+                out.writeByte(TYPE_JSON);
+                out.writeInt(json.length);
+                out.write(json);
+            }
+            out.flush();
+            return frame(body.toByteArray());
+        } catch (IOException e) {
+            throw new SerializationException("Could not serialize cache value", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        // entries written before the binary format are json documents
+        if (bytes[0] == '{' || bytes[0] == '[') {
+            return jsonSerializer.deserialize(bytes);
+        }
+        // written by a newer version during a rollout, treated as a miss instead of failing the request
+        if (bytes[0] != VERSION) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(body(bytes))) {
+            byte type = in.readByte();
+            return switch (type) {
+                case TYPE_FLIGHTS -> readFlights(in);
+                case TYPE_TIMESTAMPED_FLIGHTS -> {
+                    long storedAt = in.readLong();
+                    yield new TimestampedValue(readFlights(in), storedAt);
+                }
+                case TYPE_ENCODED_RESPONSE -> readEncodedResponse(in);
+                case TYPE_JSON -> {
+                    byte[] json = new byte[in.readInt()];
+                    in.readFully(json);
+                    yield jsonSerializer.deserialize(json);
+                }
+                default -> null;
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Could not deserialize cache value", e);
+        }
+    }
+
+    private static boolean isFlightList(Object value) {
+        return value instanceof List<?> list && list.stream().allMatch(FlightResponseDto.class::isInstance);
+    }
+
+    private byte[] frame(byte[] body) throws IOException {
+        boolean compress = body.length >= compressionThreshold;
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(body.length + 2);
+        framed.write(VERSION);
+        framed.write(compress ? FLAG_COMPRESSED : 0);
+        if (compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(framed, deflater)) {
+                out.write(body);
+            } finally {
+                deflater.end();
+            }
+        } else {
+            framed.write(body);
+        }
+        return framed.toByteArray();
+    }
+
+    private static InputStream body(byte[] bytes) {
+        ByteArrayInputStream body = new ByteArrayInputStream(bytes, 2, bytes.length - 2);
+        return (bytes[1] & FLAG_COMPRESSED) != 0 ? new InflaterInputStream(body) : body;
+    }
+
+    private static void writeEncodedResponse(DataOutputStream out, EncodedResponse encoded) throws IOException {
+        out.writeBoolean(encoded.nextCursor() != null);
+        if (encoded.nextCursor() != null) {
+            out.writeUTF(encoded.nextCursor());
+        }
+        writeBytes(out, encoded.body());
+        out.writeBoolean(encoded.gzipBody() != null);
+        if (encoded.gzipBody() != null) {
+            writeBytes(out, encoded.gzipBody());
+        }
+    }
+
+    private static EncodedResponse readEncodedResponse(DataInputStream in) throws IOException {
+        String nextCursor = in.readBoolean() ? in.readUTF() : null;
+        byte[] body = readBytes(in);
+        byte[] gzipBody = in.readBoolean() ? readBytes(in) : null;
+        return new EncodedResponse(body, gzipBody, nextCursor);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeFlights(DataOutputStream out, List<?> flights) throws IOException {
+        out.writeInt(flights.size());
+        for (Object value : flights) {
+            FlightResponseDto flight = (FlightResponseDto) value;
+            int fields = (flight.id() != null ? HAS_ID : 0)
+                    | (flight.name() != null ? HAS_NAME : 0)
+                    | (flight.price() != null ? HAS_PRICE : 0)
+                    | (flight.startDate() != null ? HAS_START_DATE : 0)
+                    | (flight.endDate() != null ? HAS_END_DATE : 0)
+                    | (flight.startLocation() != null ? HAS_START_LOCATION : 0)
+                    | (flight.endLocation() != null ? HAS_END_LOCATION : 0)
+                    | (flight.capacity() != null ? HAS_CAPACITY : 0)
+                    | (flight.seatsRemaining() != null ? HAS_SEATS_REMAINING : 0)
+                    | (flight.isAvailable() ? IS_AVAILABLE : 0);
+            out.writeShort(fields);
+            if ((fields & HAS_ID) != 0) {
+                out.writeInt(flight.id());
+            }
+            if ((fields & HAS_NAME) != 0) {
+                out.writeUTF(flight.name());
+            }
+            if ((fields & HAS_PRICE) != 0) {
+                out.writeDouble(flight.price());
+            }
+            if ((fields & HAS_START_DATE) != 0) {
+                out.writeLong(flight.startDate().getTime());
+            }
+            if ((fields & HAS_END_DATE) != 0) {
+                out.writeLong(flight.endDate().getTime());
+            }
+            if ((fields & HAS_START_LOCATION) != 0) {
+                out.writeUTF(flight.startLocation());
+            }
+            if ((fields & HAS_END_LOCATION) != 0) {
+                out.writeUTF(flight.endLocation());
+            }
+            if ((fields & HAS_CAPACITY) != 0) {
+                out.writeInt(flight.capacity());
+            }
+            if ((fields & HAS_SEATS_REMAINING) != 0) {
+                out.writeInt(flight.seatsRemaining());
+            }
+        }
+    }
+
+    // entries written while pages held entities have the same fields and are read as dtos too
+    private static List<FlightResponseDto> readFlights(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        FlightResponseDto[] flights = new FlightResponseDto[size];
+        for (int i = 0; i < size; i++) {
+            int fields = in.readUnsignedShort();
+            flights[i] = new FlightResponseDto(
+                    (fields & HAS_ID) != 0 ? in.readInt() : null,
+                    (fields & HAS_NAME) != 0 ? in.readUTF() : null,
+                    (fields & HAS_PRICE) != 0 ? in.readDouble() : null,
+                    (fields & HAS_START_DATE) != 0 ? new Timestamp(in.readLong()) : null,
+                    (fields & HAS_END_DATE) != 0 ? new Timestamp(in.readLong()) : null,
+                    (fields & HAS_START_LOCATION) != 0 ? in.readUTF() : null,
+                    (fields & HAS_END_LOCATION) != 0 ? in.readUTF() : null,
+                    (fields & IS_AVAILABLE) != 0,
+                    (fields & HAS_CAPACITY) != 0 ? in.readInt() : null,
+                    (fields & HAS_SEATS_REMAINING) != 0 ? in.readInt() : null
+            );
+        }
+        return Collections.unmodifiableList(Arrays.asList(flights));
+    }
+}
@@ -0,0 +1,65 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.model.Flight;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+// feeds the before and after state of every flight written through hibernate to the cache invalidator.
+// bulk jpql updates bypass these events, they only change seat counts and CustomerService invalidates for them
+public class FlightChangeEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final FlightCacheInvalidator invalidator;
+
+    public FlightChangeEventListener(FlightCacheInvalidator invalidator) {
+        this.invalidator = invalidator;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Flight flight) {
+            invalidator.flightChanged(null, FlightCacheKeys.routes(flight));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Flight flight) {
+            // the old state is missing for detached flights updated without being loaded, the catch-all route still covers them
+            Set<String> before = event.getOldState() == null ? null : routes(event.getOldState(), event.getPersister());
+            invalidator.flightChanged(before, FlightCacheKeys.routes(flight));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Flight flight) {
+            invalidator.flightChanged(FlightCacheKeys.routes(flight), null);
+        }
+    }
+
+    private static Set<String> routes(Object[] state, EntityPersister persister) {
+        // state is ordered like the persister's property names
+        List<String> propertyNames = Arrays.asList(persister.getPropertyNames());
+        return FlightCacheKeys.routes(
+                (String) state[propertyNames.indexOf("startLocation")],
+                (String) state[propertyNames.indexOf("endLocation")],
+                (Timestamp) state[propertyNames.indexOf("startDate")],
+                (Timestamp) state[propertyNames.indexOf("endDate")]
+        );
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,155 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.config.FlightETagProperties;
+import dev.peter.flightbooking.event.FlightChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
+
+// data versions of the flight list routes, kept in memory so conditional requests are answered without redis or mysql.
+// bumps are stored in a redis hash so instances started later agree on versions, and broadcast to running instances
+@Component
+public class FlightDataVersions implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightDataVersions.class);
+
+    private static final String BASE_VERSION = "base";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final FlightETagProperties properties;
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    // version of routes that did not change since the versions were first stored
+    private volatile long baseVersion = System.currentTimeMillis();
+
+    public FlightDataVersions(StringRedisTemplate redisTemplate, FlightETagProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    public long version(String route) {
+        return versions.getOrDefault(route, baseVersion);
+    }
+
+    // strong etag of one request, without quotes
+    public String etag(String route, String requestKey) {
+        long validityWindow = System.currentTimeMillis() / properties.validity().toMillis();
+        String value = route + ":" + version(route) + ":" + validityWindow + ":" + requestKey;
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            redisTemplate.opsForHash().putIfAbsent(properties.versionsKey(), BASE_VERSION, String.valueOf(baseVersion));
+            Map<Object, Object> stored = redisTemplate.opsForHash().entries(properties.versionsKey());
+            stored.forEach((route, version) -> {
+                if (BASE_VERSION.equals(route)) {
+                    baseVersion = Long.parseLong((String) version);
+                } else {
+                    versions.merge((String) route, Long.parseLong((String) version), Math::max);
+                }
+            });
+            log.info("Loaded {} flight data versions", versions.size());
+        } catch (RuntimeException e) {
+            // etags of this instance differ from the others until the versions converge, responses stay correct
+            log.warn("Could not load flight data versions, starting from local versions", e);
+        }
+    }
+
+    // applied only once the change is committed, so an etag never vouches for data that was rolled back
+    @EventListener
+    public void onFlightChanged(FlightChangedEvent event) {
+        Set<String> routes = new HashSet<>();
+        // seat changes keep the catch-all etag, as the response cache keeps those pages
+        if (!event.seatsOnly()) {
+            routes.add(FlightCacheKeys.ALL_FLIGHTS);
+        }
+        if (!event.isDeletion()) {
+            addRoutes(routes, event.flight().getStartLocation(), event.flight().getEndLocation());
+        }
+        addRoutes(routes, event.previousStartLocation(), event.previousEndLocation());
+        bumpAfterCommit(routes);
+    }
+
+    // changes of one transaction get one version, an import batch writes and broadcasts once instead of per flight
+    private void bumpAfterCommit(Set<String> routes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(routes);
+            return;
+        }
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> transactionRoutes = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, transactionRoutes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FlightDataVersions.this);
+                    if (status == STATUS_COMMITTED) {
+                        bump(transactionRoutes);
+                    }
+                }
+            });
+            pending = transactionRoutes;
+        }
+        pending.addAll(routes);
+    }
+
+    private static void addRoutes(Set<String> routes, String startLocation, String endLocation) {
+        if (nonNull(startLocation)) {
+            routes.add(FlightCacheKeys.startLocationRoute(startLocation));
+        }
+        if (nonNull(endLocation)) {
+            routes.add(FlightCacheKeys.endLocationRoute(endLocation));
+        }
+    }
+
+    void bump(Set<String> routes) {
+        // versions only move forward, also when the clock does not
+        long version = Math.max(System.currentTimeMillis(), routes.stream().mapToLong(this::version).max().orElse(0) + 1);
+        routes.forEach(route -> versions.merge(route, version, Math::max));
+        try {
+            redisTemplate.opsForHash().putAll(
+                    properties.versionsKey(),
+                    routes.stream().collect(Collectors.toMap(route -> route, route -> String.valueOf(version)))
+            );
+            redisTemplate.convertAndSend(properties.channel(), version + "\n" + String.join("\n", routes));
+        } catch (RuntimeException e) {
+            // other instances keep answering with the old version until their etags roll over
+            log.warn("Could not publish flight data version {} of {}", version, routes, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+        try {
+            long version = Long.parseLong(lines[0]);
+            for (int i = 1; i < lines.length; i++) {
+                versions.merge(lines[i], version, Math::max);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed flight data version message", e);
+        }
+    }
+}
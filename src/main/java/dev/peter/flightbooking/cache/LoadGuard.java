@@ -0,0 +1,11 @@
+package dev.peter.flightbooking.cache;
+
+// started right before a cache load, the returned check runs right after the loaded value is stored.
+// the check evicts the value again when the data it was loaded from changed while loading
+@FunctionalInterface
+public interface LoadGuard {
+
+    LoadGuard NONE = () -> () -> {};
+
+    Runnable start();
+}
@@ -0,0 +1,142 @@
+package dev.peter.flightbooking.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.peter.flightbooking.config.CacheWarmUpProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// persisted hit counts of cache keys, read at startup to warm the most requested keys.
+// hits are summed locally and flushed to one redis sorted set per cache
+@Component
+public class PopularCacheKeys implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PopularCacheKeys.class);
+
+    private static final String KEY_PREFIX = "flightbooking:popular-keys:";
+
+    private static final char SEPARATOR = '|';
+
+    private static final char ESCAPE = '\\';
+
+    private record Hit(String cacheName, String member) {}
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final CacheWarmUpProperties properties;
+
+    // bounded so a burst of one-off keys between flushes does not accumulate
+    private final com.github.benmanes.caffeine.cache.Cache<Hit, LongAdder> hits = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public PopularCacheKeys(StringRedisTemplate redisTemplate, CacheWarmUpProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    public void recordHit(String cacheName, String... args) {
+        hits.get(new Hit(cacheName, member(args)), hit -> new LongAdder()).increment();
+    }
+
+    // arguments of the most requested keys, most requested first
+    public List<List<String>> top(String cacheName, int count) {
+        Set<String> members = redisTemplate.opsForZSet().reverseRange(KEY_PREFIX + cacheName, 0, count - 1);
+        if (members == null) {
+            return List.of();
+        }
+        return members.stream()
+                .map(PopularCacheKeys::args)
+                .toList();
+    }
+
+    // arguments are user input, so separators inside them are escaped
+    public static String member(String... args) {
+        StringBuilder member = new StringBuilder();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                member.append(SEPARATOR);
+            }
+            for (char c : args[i].toCharArray()) {
+                if (c == SEPARATOR || c == ESCAPE) {
+                    member.append(ESCAPE);
+                }
+                member.append(c);
+            }
+        }
+        return member.toString();
+    }
+
+    static List<String> args(String member) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        for (int i = 0; i < member.length(); i++) {
+            char c = member.charAt(i);
+            if (c == ESCAPE && i + 1 < member.length()) {
+                arg.append(member.charAt(++i));
+            } else if (c == SEPARATOR) {
+                args.add(arg.toString());
+                arg.setLength(0);
+            } else {
+                arg.append(c);
+            }
+        }
+        args.add(arg.toString());
+        return args;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.warm-up.hit-flush-interval:PT1M}")
+    public void flush() {
+        Map<Hit, Long> counts = new HashMap<>();
+        for (Hit hit : Set.copyOf(hits.asMap().keySet())) {
+            LongAdder adder = hits.asMap().remove(hit);
+            if (adder != null) {
+                counts.put(hit, adder.sum());
+            }
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+        Set<String> cacheNames = new HashSet<>();
+        counts.keySet().forEach(hit -> cacheNames.add(hit.cacheName()));
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                counts.forEach((hit, count) -> connection.zSetCommands().zIncrBy(bytes(KEY_PREFIX + hit.cacheName()), count, bytes(hit.member())));
+                // only the most requested keys are kept
+                cacheNames.forEach(cacheName -> trim(connection, cacheName));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // the counts of this interval are lost, warm-up works from the older counts
+            log.warn("Could not flush hit counts of {} cache keys", counts.size(), e);
+        }
+    }
+
+    private void trim(RedisConnection connection, String cacheName) {
+        connection.zSetCommands().zRemRange(bytes(KEY_PREFIX + cacheName), 0, -properties.trackedKeys() - 1L);
+    }
+
+    private static byte[] bytes(String value) {
+        return Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+}
@@ -0,0 +1,56 @@
+package dev.peter.flightbooking.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+@Component
+public class RedisCacheLease implements CacheLease {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCacheLease.class);
+
+    private static final String KEY_PREFIX = "flightbooking:lease:";
+
+    // only the holder may release, an expired lease can already belong to another instance
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisCacheLease(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public String tryAcquire(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, token, ttl);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        } catch (RuntimeException e) {
+            // without redis every instance loads on its own, as before
+            log.warn("Could not acquire cache lease for {}", key, e);
+            return "";
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        if (token.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(KEY_PREFIX + key), token);
+        } catch (RuntimeException e) {
+            log.warn("Could not release cache lease for {}", key, e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package dev.peter.flightbooking.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.peter.flightbooking.config.CacheTtlProperties;
+import dev.peter.flightbooking.config.RefreshAheadProperties;
+import dev.peter.flightbooking.config.SingleFlightProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// read-through loading where concurrent misses of one key share a single load,
+// locally through a shared future and across instances through a lease.
+// keys read often near the end of their ttl are reloaded in the background before they expire
+@Component
+public class SingleFlightCacheLoader implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightCacheLoader.class);
+
+    private final CacheManager cacheManager;
+
+    private final CacheLease cacheLease;
+
+    private final SingleFlightProperties properties;
+
+    private final CacheTtlProperties ttlProperties;
+
+    private final RefreshAheadProperties refreshAheadProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // hits per key inside the refresh window, bounded so rarely read keys do not accumulate
+    private final com.github.benmanes.caffeine.cache.Cache<String, AtomicInteger> refreshWindowHits = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SingleFlightCacheLoader(
+            CacheManager cacheManager,
+            CacheLease cacheLease,
+            SingleFlightProperties properties,
+            CacheTtlProperties ttlProperties,
+            RefreshAheadProperties refreshAheadProperties,
+            MeterRegistry meterRegistry
+    ) {
+        this.cacheManager = cacheManager;
+        this.cacheLease = cacheLease;
+        this.properties = properties;
+        this.ttlProperties = ttlProperties;
+        this.refreshAheadProperties = refreshAheadProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private Counter counter(String cacheName, String result) {
+        return Counter.builder("flight.cache.requests")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // entries written before load times were stored have no age and are never refreshed ahead
+    private static TimestampedValue cachedEntry(Cache cache, Object key) {
+        Cache.ValueWrapper value = cache.get(key);
+        if (value == null || value.get() == null) {
+            return null;
+        }
+        return value.get() instanceof TimestampedValue entry ? entry : new TimestampedValue(value.get(), Long.MAX_VALUE);
+    }
+
+    private static Object cachedValue(Cache cache, Object key) {
+        TimestampedValue entry = cachedEntry(cache, key);
+        return entry == null ? null : entry.value();
+    }
+
+    public <T> T get(String cacheName, Object key, Supplier<T> loader) {
+        return get(cacheName, key, loader, LoadGuard.NONE);
+    }
+
+    public <T> T get(String cacheName, Object key, Supplier<T> loader, LoadGuard guard) {
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(cacheName));
+        String flightKey = cacheName + "::" + TwoLevelCache.localKey(key);
+
+        TimestampedValue entry = cachedEntry(cache, key);
+        if (entry != null) {
+            counter(cacheName, "hit").increment();
+            refreshAheadIfHot(cacheName, cache, key, flightKey, entry, loader, guard);
+            return (T) entry.value();
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, future);
+        if (running != null) {
+            counter(cacheName, "coalesced").increment();
+            Object value = join(running);
+            // a background refresh that did not get to load leaves nothing to share
+            return (T) (value != null ? value : loadWithLease(cache, key, flightKey, loader, guard));
+        }
+
+        counter(cacheName, "miss").increment();
+        try {
+            Object loaded = loadWithLease(cache, key, flightKey, loader, guard);
+            future.complete(loaded);
+            return (T) loaded;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, future);
+        }
+    }
+
+    private void refreshAheadIfHot(String cacheName, Cache cache, Object key, String flightKey, TimestampedValue entry, Supplier<?> loader, LoadGuard guard) {
+        if (!refreshAheadProperties.enabled() || entry.storedAt() == Long.MAX_VALUE) {
+            return;
+        }
+        long ttl = ttlProperties.ttlFor(cacheName).toMillis();
+        if (entry.ageMillis() < ttl * (1 - refreshAheadProperties.window())) {
+            return;
+        }
+        int hits = refreshWindowHits.get(flightKey, k -> new AtomicInteger()).incrementAndGet();
+        if (hits < refreshAheadProperties.minHits()) {
+            return;
+        }
+        refreshWindowHits.invalidate(flightKey);
+
+        // a running load or refresh of the key already brings a fresh value
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(flightKey, future) != null) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                future.complete(refresh(cacheName, cache, key, flightKey, loader, guard));
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh {} entry for {} ahead of expiry", cacheName, key, e);
+                future.complete(null);
+            } finally {
+                inFlight.remove(flightKey, future);
+            }
+        });
+    }
+
+    private Object refresh(String cacheName, Cache cache, Object key, String flightKey, Supplier<?> loader, LoadGuard guard) {
+        String token = cacheLease.tryAcquire(flightKey, properties.leaseTtl());
+        if (token == null) {
+            // another instance refreshes the key
+            return null;
+        }
+        try {
+            Object loaded = load(cache, key, loader, guard);
+            counter(cacheName, "refreshed").increment();
+            return loaded;
+        } catch (RuntimeException e) {
+            // the current entry stays until it expires, the next miss loads it the usual way
+            log.warn("Could not refresh {} entry for {} ahead of expiry", cacheName, key, e);
+            return null;
+        } finally {
+            cacheLease.release(flightKey, token);
+        }
+    }
+
+    private Object loadWithLease(Cache cache, Object key, String flightKey, Supplier<?> loader, LoadGuard guard) {
+        String token = cacheLease.tryAcquire(flightKey, properties.leaseTtl());
+        long deadline = System.nanoTime() + properties.leaseTtl().toNanos();
+        // another instance is loading the key, wait for its result while the lease lasts
+        while (token == null && System.nanoTime() < deadline) {
+            sleep();
+            Object value = cachedValue(cache, key);
+            if (value != null) {
+                return value;
+            }
+            token = cacheLease.tryAcquire(flightKey, properties.leaseTtl());
+        }
+
+        try {
+            // the previous holder may have stored the value right before releasing the lease
+            Object value = cachedValue(cache, key);
+            if (value != null) {
+                return value;
+            }
+            return load(cache, key, loader, guard);
+        } finally {
+            if (token != null) {
+                cacheLease.release(flightKey, token);
+            }
+        }
+    }
+
+    private static Object load(Cache cache, Object key, Supplier<?> loader, LoadGuard guard) {
+        Runnable check = guard.start();
+        Object loaded = loader.get();
+        if (loaded != null) {
+            cache.put(key, TimestampedValue.now(loaded));
+            check.run();
+        }
+        return loaded;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(properties.pollInterval());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cache load", e);
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+}
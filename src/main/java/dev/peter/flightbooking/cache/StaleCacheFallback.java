@@ -0,0 +1,110 @@
+package dev.peter.flightbooking.cache;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// database loads go through a circuit breaker, every successful load also keeps a long lived copy in a separate cache,
+// which is served when the database fails or the breaker is open
+@Component
+public class StaleCacheFallback {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleCacheFallback.class);
+
+    public static final String CIRCUIT_BREAKER_NAME = "flightSearch";
+
+    public record Result<T>(T value, Duration staleness) {
+        public boolean isStale() {
+            return staleness != null;
+        }
+    }
+
+    private final CacheManager cacheManager;
+
+    private final SingleFlightCacheLoader cacheLoader;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final MeterRegistry meterRegistry;
+
+    public StaleCacheFallback(CacheManager cacheManager, SingleFlightCacheLoader cacheLoader, CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.cacheLoader = cacheLoader;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // stale copies are not evicted on writes, they only expire
+    public static String staleCacheName(String cacheName) {
+        return cacheName + "Stale";
+    }
+
+    public <T> Result<T> get(String cacheName, Object key, Supplier<T> loader) {
+        return get(cacheName, key, loader, LoadGuard.NONE);
+    }
+
+    public <T> Result<T> get(String cacheName, Object key, Supplier<T> loader, LoadGuard guard) {
+        try {
+            return new Result<>(cacheLoader.get(cacheName, key, () -> loadAndKeep(cacheName, key, loader), guard), null);
+        } catch (RuntimeException e) {
+            if (!isDegraded(e)) {
+                throw e;
+            }
+            TimestampedValue entry = staleEntry(cacheName, key);
+            if (entry == null) {
+                meterRegistry.counter("flight.cache.stale", "cache", cacheName, "result", "unavailable").increment();
+                throw e;
+            }
+            log.warn("Serving stale {} entry for {}, database unavailable: {}", cacheName, key, e.getMessage());
+            meterRegistry.counter("flight.cache.stale", "cache", cacheName, "result", "served").increment();
+            return new Result<>((T) entry.value(), Duration.ofMillis(entry.ageMillis()));
+        }
+    }
+
+    private <T> T loadAndKeep(String cacheName, Object key, Supplier<T> loader) {
+        T loaded = circuitBreaker.executeSupplier(loader);
+        if (loaded != null) {
+            try {
+                staleCache(cacheName).put(key, TimestampedValue.now(loaded));
+            } catch (RuntimeException e) {
+                log.warn("Could not keep stale copy of {} entry for {}", cacheName, key, e);
+            }
+        }
+        return loaded;
+    }
+
+    private TimestampedValue staleEntry(String cacheName, Object key) {
+        try {
+            Cache.ValueWrapper stale = staleCache(cacheName).get(key);
+            return stale != null && stale.get() instanceof TimestampedValue entry ? entry : null;
+        } catch (RuntimeException e) {
+            log.warn("Could not read stale copy of {} entry for {}", cacheName, key, e);
+            return null;
+        }
+    }
+
+    private Cache staleCache(String cacheName) {
+        return Objects.requireNonNull(cacheManager.getCache(staleCacheName(cacheName)));
+    }
+
+    private static boolean isDegraded(RuntimeException e) {
+        return e instanceof DataAccessException
+                || e instanceof TransactionException
+                || e instanceof CallNotPermittedException
+                || (e instanceof ResponseStatusException status && status.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,16 @@
+package dev.peter.flightbooking.cache;
+
+// cached value together with the time it was loaded, used to serve stale copies and to refresh ahead of expiry
+public record TimestampedValue(
+        Object value,
+
+        long storedAt
+) {
+    public static TimestampedValue now(Object value) {
+        return new TimestampedValue(value, System.currentTimeMillis());
+    }
+
+    public long ageMillis() {
+        return Math.max(0, System.currentTimeMillis() - storedAt);
+    }
+}
@@ -0,0 +1,17 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "app.cache.serializer")
+public record CacheSerializerProperties(
+        @DefaultValue("BINARY") Format format,
+        // encoded values at least this large are deflated before they are stored
+        @DefaultValue("1KB") DataSize compressionThreshold
+) {
+    public enum Format {
+        JSON,
+        BINARY
+    }
+}
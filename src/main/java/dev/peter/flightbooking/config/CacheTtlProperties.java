@@ -0,0 +1,23 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+
+@ConfigurationProperties(prefix = "app.cache.redis")
+public record CacheTtlProperties(
+        @DefaultValue("60m") Duration defaultTtl,
+        // per cache name, caches not listed use the default
+        Map<String, Duration> ttl
+) {
+    public CacheTtlProperties {
+        ttl = Objects.requireNonNullElse(ttl, Map.of());
+    }
+
+    public Duration ttlFor(String cacheName) {
+        return ttl.getOrDefault(cacheName, defaultTtl);
+    }
+}
@@ -0,0 +1,26 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.cache.warm-up")
+public record CacheWarmUpProperties(
+        @DefaultValue("true") boolean enabled,
+        // most requested keys per cache loaded at startup, on top of the configured ones
+        @DefaultValue("50") int topKeys,
+        // kept below the database concurrency limit so warm-up loads are not shed
+        @DefaultValue("8") int parallelism,
+        // readiness is held back at most this long, keys not loaded by then are loaded on first request
+        @DefaultValue("60s") Duration timeout,
+        // hit counts are summed locally and written to redis at this interval
+        @DefaultValue("PT1M") Duration hitFlushInterval,
+        // keys kept per cache in the hit count record
+        @DefaultValue("1000") int trackedKeys,
+        @DefaultValue List<String> startLocations,
+        @DefaultValue List<String> endLocations,
+        // startDate/endDate pairs, for example 2030-10-10T00:00:00/2030-10-11T00:00:00
+        @DefaultValue List<String> timeFrames
+) {}
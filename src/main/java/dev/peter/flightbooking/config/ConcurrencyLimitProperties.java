@@ -0,0 +1,18 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.db-limiter")
+public record ConcurrencyLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int initialLimit,
+        @DefaultValue("4") int minLimit,
+        @DefaultValue("200") int maxLimit,
+        // callers allowed to wait for a free slot, anything beyond is rejected right away
+        @DefaultValue("50") int maxQueue,
+        @DefaultValue("100ms") Duration maxWait,
+        @DefaultValue("1s") Duration retryAfter
+) {}
@@ -0,0 +1,15 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.flights.etag")
+public record FlightETagProperties(
+        @DefaultValue("true") boolean enabled,
+        // seat counts change on bookings without a new data version, so etags also roll over after this long
+        @DefaultValue("10m") Duration validity,
+        @DefaultValue("flightbooking:flight-data-versions") String versionsKey,
+        @DefaultValue("flightbooking:flight-data-version") String channel
+) {}
@@ -0,0 +1,9 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.flights.import")
+public record FlightImportProperties(
+        @DefaultValue("500") int batchSize
+) {}
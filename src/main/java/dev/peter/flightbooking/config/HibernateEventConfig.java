@@ -0,0 +1,26 @@
+package dev.peter.flightbooking.config;
+
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
+import dev.peter.flightbooking.cache.FlightChangeEventListener;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateEventConfig {
+
+    @Bean
+    public FlightChangeEventListener flightChangeEventListener(EntityManagerFactory entityManagerFactory, FlightCacheInvalidator invalidator) {
+        FlightChangeEventListener listener = new FlightChangeEventListener(invalidator);
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        return listener;
+    }
+}
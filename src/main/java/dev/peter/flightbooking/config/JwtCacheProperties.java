@@ -0,0 +1,16 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.security.jwt")
+public record JwtCacheProperties(
+        // validated tokens kept until they expire
+        @DefaultValue("10000") long cacheMaximumSize,
+        // keys of the authserver are fetched at startup and then at this interval
+        @DefaultValue("PT5M") Duration jwksRefreshInterval,
+        // a token signed with an unknown key triggers a refresh at most this often
+        @DefaultValue("30s") Duration jwksMinRefreshInterval
+) {}
@@ -0,0 +1,18 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.security.password-hashing")
+public record PasswordHashingProperties(
+        // bcrypt cost, every step doubles the time of one hash, see PasswordHashingBenchmark
+        @DefaultValue("10") int strength,
+        // platform threads hashing passwords, kept below the core count so reads keep cpu time
+        @DefaultValue("2") int threads,
+        // hashes allowed to wait for a thread, anything beyond is rejected right away
+        @DefaultValue("50") int maxQueue,
+        @DefaultValue("5s") Duration timeout,
+        @DefaultValue("1s") Duration retryAfter
+) {}
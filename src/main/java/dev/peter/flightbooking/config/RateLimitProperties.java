@@ -0,0 +1,14 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// token buckets per client, reads (GET, HEAD) and writes are limited separately
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") int readCapacity,
+        @DefaultValue("20") double readRefillPerSecond,
+        @DefaultValue("20") int writeCapacity,
+        @DefaultValue("2") double writeRefillPerSecond
+) {}
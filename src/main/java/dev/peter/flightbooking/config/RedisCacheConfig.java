@@ -1,25 +1,93 @@
 package dev.peter.flightbooking.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.peter.flightbooking.cache.CacheInvalidationListener;
+import dev.peter.flightbooking.cache.CacheInvalidationPublisher;
+import dev.peter.flightbooking.cache.FlightCacheSerializer;
+import dev.peter.flightbooking.cache.FlightDataVersions;
+import dev.peter.flightbooking.cache.StaleCacheFallback;
+import dev.peter.flightbooking.cache.TwoLevelCacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
-import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @EnableCaching
 public class RedisCacheConfig {
+
+    public static final List<String> FLIGHT_PAGE_CACHES = List.of("flightStartLocation", "flightEndLocation", "flightTimeFrame", "flightSearch");
+
+    // encoded responses of the page caches, cleared together with them
+    public static final String FLIGHT_RESPONSE_CACHE = "flightResponse";
+
     @Bean
-    public RedisCacheConfiguration cacheConfiguration() {
+    public RedisCacheConfiguration cacheConfiguration(CacheTtlProperties ttlProperties, CacheSerializerProperties serializerProperties) {
+        RedisSerializer<Object> jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        RedisSerializer<Object> valueSerializer = serializerProperties.format() == CacheSerializerProperties.Format.BINARY
+                ? new FlightCacheSerializer(jsonSerializer, (int) serializerProperties.compressionThreshold().toBytes())
+                : jsonSerializer;
         return RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(60))
+                .entryTtl(ttlProperties.defaultTtl())
                 .disableCachingNullValues()
                 .serializeValuesWith(
                         RedisSerializationContext.SerializationPair
-                                .fromSerializer(new GenericJackson2JsonRedisSerializer())
+                                .fromSerializer(valueSerializer)
                 );
     }
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, TwoLevelCacheProperties properties) {
+        return new CacheInvalidationPublisher(redisTemplate, objectMapper, properties.invalidationChannel());
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(
+            RedisConnectionFactory connectionFactory,
+            RedisCacheConfiguration cacheConfiguration,
+            TwoLevelCacheProperties properties,
+            CacheTtlProperties ttlProperties,
+            StaleCacheProperties staleCacheProperties,
+            CacheInvalidationPublisher invalidationPublisher
+    ) {
+        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(cacheConfiguration);
+        ttlProperties.ttl().forEach((cacheName, ttl) -> builder.withCacheConfiguration(cacheName, cacheConfiguration.entryTtl(ttl)));
+        FLIGHT_PAGE_CACHES.forEach(cacheName -> builder.withCacheConfiguration(
+                StaleCacheFallback.staleCacheName(cacheName),
+                cacheConfiguration.entryTtl(staleCacheProperties.ttl())
+        ));
+        RedisCacheManager redisCacheManager = builder.build();
+        redisCacheManager.initializeCaches();
+        return new TwoLevelCacheManager(redisCacheManager, properties, invalidationPublisher);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TwoLevelCacheManager cacheManager,
+            CacheInvalidationPublisher invalidationPublisher,
+            ObjectMapper objectMapper,
+            FlightDataVersions flightDataVersions,
+            FlightETagProperties eTagProperties
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                new CacheInvalidationListener(cacheManager, objectMapper),
+                new ChannelTopic(invalidationPublisher.getChannel())
+        );
+        container.addMessageListener(flightDataVersions, new ChannelTopic(eTagProperties.channel()));
+        return container;
+    }
 }
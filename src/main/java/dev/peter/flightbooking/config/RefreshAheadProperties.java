@@ -0,0 +1,13 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.cache.refresh-ahead")
+public record RefreshAheadProperties(
+        @DefaultValue("true") boolean enabled,
+        // share of the ttl at its end in which hits of a key are counted towards a refresh
+        @DefaultValue("0.2") double window,
+        // hits inside the window that make a key hot enough to be reloaded before it expires
+        @DefaultValue("3") int minHits
+) {}
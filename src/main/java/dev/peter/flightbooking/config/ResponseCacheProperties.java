@@ -0,0 +1,13 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "app.flights.response-cache")
+public record ResponseCacheProperties(
+        // caches the encoded json of flight pages, hits are written to the client without mapping or serializing
+        @DefaultValue("false") boolean enabled,
+        // smaller bodies are not worth a gzip variant
+        @DefaultValue("1KB") DataSize gzipThreshold
+) {}
@@ -0,0 +1,14 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.flights.connections")
+public record RouteGraphProperties(
+        @DefaultValue("45m") Duration defaultMinLayover,
+        @DefaultValue("24h") Duration maxLayover,
+        @DefaultValue("3") int maxLegs,
+        @DefaultValue("10") int maxResults
+) {}
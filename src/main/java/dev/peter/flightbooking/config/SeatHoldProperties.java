@@ -0,0 +1,13 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.bookings.holds")
+public record SeatHoldProperties(
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("30s") Duration bookingTtl,
+        @DefaultValue("3") int maxAttempts
+) {}
@@ -1,21 +1,66 @@
 package dev.peter.flightbooking.config;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import dev.peter.flightbooking.security.CachingJwtDecoder;
+import dev.peter.flightbooking.security.PrefetchedJwkSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpMethod;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.client.RestClient;
 
 @Configuration
 @Profile("!test")
 @EnableMethodSecurity
 public class SecurityConfig {
+
+    @Bean
+    public PrefetchedJwkSource jwkSource(
+            OAuth2ResourceServerProperties resourceServerProperties,
+            JwtCacheProperties jwtCacheProperties,
+            MeterRegistry meterRegistry
+    ) {
+        PrefetchedJwkSource jwkSource = new PrefetchedJwkSource(
+                RestClient.create(),
+                resourceServerProperties.getJwt().getJwkSetUri(),
+                jwtCacheProperties.jwksMinRefreshInterval()
+        );
+        Gauge.builder("security.jwks.keys", jwkSource, PrefetchedJwkSource::getKeyCount).register(meterRegistry);
+        return jwkSource;
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(
+            PrefetchedJwkSource jwkSource,
+            OAuth2ResourceServerProperties resourceServerProperties,
+            JwtCacheProperties jwtCacheProperties,
+            MeterRegistry meterRegistry
+    ) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // claims are validated by the decoder below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {});
+
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        jwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(resourceServerProperties.getJwt().getIssuerUri()));
+        return new CachingJwtDecoder(jwtDecoder, jwtCacheProperties.cacheMaximumSize(), meterRegistry);
+    }
+
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(request -> request
@@ -25,9 +70,13 @@ public class SecurityConfig {
                         .permitAll()
                         .requestMatchers(HttpMethod.GET, "/v1/api/flights")
                         .permitAll()
+                        .requestMatchers(HttpMethod.GET, "/v1/api/flights/search")
+                        .permitAll()
+                        .requestMatchers(HttpMethod.GET, "/v1/api/flights/connections")
+                        .permitAll()
                         .anyRequest()
                         .authenticated())
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()))
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.decoder(jwtDecoder)))
                 .build();
     }
 }
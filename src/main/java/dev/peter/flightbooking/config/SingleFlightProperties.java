@@ -0,0 +1,13 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache.single-flight")
+public record SingleFlightProperties(
+        // how long another instance may hold the load of a key before it is loaded here anyway
+        @DefaultValue("10s") Duration leaseTtl,
+        @DefaultValue("50ms") Duration pollInterval
+) {}
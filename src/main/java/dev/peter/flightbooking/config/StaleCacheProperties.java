@@ -0,0 +1,12 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache.stale")
+public record StaleCacheProperties(
+        // how long the last loaded copy of a page may be served while the database is unavailable
+        @DefaultValue("24h") Duration ttl
+) {}
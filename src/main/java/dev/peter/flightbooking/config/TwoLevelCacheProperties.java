@@ -0,0 +1,14 @@
+package dev.peter.flightbooking.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache.local")
+public record TwoLevelCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        // bounds staleness of local entries in case an invalidation message is lost
+        @DefaultValue("5m") Duration expireAfterWrite,
+        @DefaultValue("flightbooking:cache-invalidation") String invalidationChannel
+) {}
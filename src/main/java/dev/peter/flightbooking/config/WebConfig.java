@@ -1,10 +1,13 @@
 package dev.peter.flightbooking.config;
 
+import dev.peter.flightbooking.controller.FlightController;
+import dev.peter.flightbooking.ratelimit.RateLimitInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
@@ -24,9 +27,28 @@ public class WebConfig {
                         )
                         .allowedHeaders(
                                 HttpHeaders.CONTENT_TYPE,
-                                HttpHeaders.AUTHORIZATION
+                                HttpHeaders.AUTHORIZATION,
+                                HttpHeaders.IF_NONE_MATCH
+                        )
+                        .exposedHeaders(
+                                FlightController.NEXT_CURSOR_HEADER,
+                                FlightController.STALE_SECONDS_HEADER,
+                                HttpHeaders.RETRY_AFTER,
+                                HttpHeaders.ETAG,
+                                RateLimitInterceptor.REMAINING_HEADER
                         );
             }
         };
     }
+
+    @Bean
+    public WebMvcConfigurer rateLimitConfig(RateLimitInterceptor rateLimitInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(rateLimitInterceptor)
+                        .addPathPatterns("/v1/api/**");
+            }
+        };
+    }
 }
@@ -2,6 +2,7 @@ package dev.peter.flightbooking.controller;
 
 import dev.peter.flightbooking.dto.*;
 import dev.peter.flightbooking.service.CustomerService;
+import dev.peter.flightbooking.service.SeatHoldService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,8 @@ public class CustomerController {
 
     private final CustomerService customerService;
 
+    private final SeatHoldService seatHoldService;
+
     @GetMapping("{id}")
     public ResponseEntity<CustomerResponseDto> getCustomerById(@PathVariable Integer id) {
         return new ResponseEntity<>(customerService.getCustomerById(id), HttpStatus.OK);
@@ -47,7 +50,7 @@ public class CustomerController {
 
     @PostMapping("{id}/bookings")
     public ResponseEntity<CustomerBookingResponseDto> bookCustomerFlight(@PathVariable Integer id, @RequestBody CustomerBookingRequestDto bookingRequest) {
-        return new ResponseEntity<>(customerService.bookCustomerFlight(id, bookingRequest), HttpStatus.CREATED);
+        return new ResponseEntity<>(seatHoldService.bookSeat(id, bookingRequest), HttpStatus.CREATED);
     }
 
     @DeleteMapping("{id}/bookings/{flightId}")
@@ -55,4 +58,20 @@ public class CustomerController {
         customerService.deleteBookedCustomerFlight(id, flightId);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("{id}/holds")
+    public ResponseEntity<SeatHoldResponseDto> holdSeat(@PathVariable Integer id, @RequestBody CustomerBookingRequestDto holdRequest) {
+        return new ResponseEntity<>(seatHoldService.holdSeat(id, holdRequest), HttpStatus.CREATED);
+    }
+
+    @PostMapping("{id}/holds/{holdId}/confirm")
+    public ResponseEntity<CustomerBookingResponseDto> confirmSeatHold(@PathVariable Integer id, @PathVariable String holdId) {
+        return new ResponseEntity<>(seatHoldService.confirmSeatHold(id, holdId), HttpStatus.CREATED);
+    }
+
+    @DeleteMapping("{id}/holds/{holdId}")
+    public ResponseEntity<Void> releaseSeatHold(@PathVariable Integer id, @PathVariable String holdId) {
+        seatHoldService.releaseSeatHold(id, holdId);
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,162 @@
+package dev.peter.flightbooking.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.peter.flightbooking.cache.EncodedResponse;
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
+import dev.peter.flightbooking.cache.PopularCacheKeys;
+import dev.peter.flightbooking.config.RedisCacheConfig;
+import dev.peter.flightbooking.config.ResponseCacheProperties;
+import dev.peter.flightbooking.dto.FlightPageResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+public class EncodedResponseCache {
+
+    private final CacheManager cacheManager;
+
+    private final FlightCacheInvalidator flightCacheInvalidator;
+
+    private final ObjectMapper objectMapper;
+
+    private final ResponseCacheProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    public EncodedResponseCache(CacheManager cacheManager, FlightCacheInvalidator flightCacheInvalidator, ObjectMapper objectMapper, ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.flightCacheInvalidator = flightCacheInvalidator;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    public ResponseEntity<byte[]> respond(HttpServletRequest request, String key, String route, Supplier<FlightPageResponseDto> pageLoader) {
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(RedisCacheConfig.FLIGHT_RESPONSE_CACHE));
+
+        Cache.ValueWrapper cached = cache.get(key);
+        EncodedResponse encoded = cached != null && cached.get() instanceof EncodedResponse value ? value : null;
+        Long staleSeconds = null;
+        if (encoded != null) {
+            meterRegistry.counter("flight.response.cache", "result", "hit").increment();
+        } else {
+            meterRegistry.counter("flight.response.cache", "result", "miss").increment();
+            Runnable check = flightCacheInvalidator.guard(RedisCacheConfig.FLIGHT_RESPONSE_CACHE, route, key).start();
+            FlightPageResponseDto page = pageLoader.get();
+            encoded = put(cache, key, page, check);
+            staleSeconds = page.staleSeconds();
+        }
+
+        boolean gzip = encoded.gzipBody() != null && acceptsGzip(request);
+        byte[] body = gzip ? encoded.gzipBody() : encoded.body();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (encoded.nextCursor() != null) {
+            response.header(FlightController.NEXT_CURSOR_HEADER, encoded.nextCursor());
+        }
+        if (staleSeconds != null) {
+            response.header(FlightController.STALE_SECONDS_HEADER, String.valueOf(staleSeconds));
+        }
+        return response.body(body);
+    }
+
+    // loads the response of a request key ahead of the first request for it
+    public void warm(String key, String route, Supplier<FlightPageResponseDto> pageLoader) {
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(RedisCacheConfig.FLIGHT_RESPONSE_CACHE));
+        if (cache.get(key) == null) {
+            Runnable check = flightCacheInvalidator.guard(RedisCacheConfig.FLIGHT_RESPONSE_CACHE, route, key).start();
+            put(cache, key, pageLoader.get(), check);
+        }
+    }
+
+    // the response is indexed before its page is loaded, the check evicts it again if the route changed meanwhile
+    private EncodedResponse put(Cache cache, String key, FlightPageResponseDto page, Runnable check) {
+        EncodedResponse encoded = encode(page);
+        // a page served from the stale fallback must not outlive the outage
+        if (page.staleSeconds() == null) {
+            cache.put(key, encoded);
+            check.run();
+        }
+        return encoded;
+    }
+
+    private EncodedResponse encode(FlightPageResponseDto page) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(page.flights());
+            byte[] gzipBody = body.length >= properties.gzipThreshold().toBytes() ? gzip(body) : null;
+            return new EncodedResponse(body, gzipBody, page.nextCursor());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode flight page", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && Arrays.stream(acceptEncoding.split(","))
+                .map(encoding -> encoding.trim().split(";")[0])
+                .anyMatch("gzip"::equalsIgnoreCase);
+    }
+
+    // only the parameters the endpoint reads are part of the key, parameters it ignores neither add entries nor split them
+    static String requestKey(HttpServletRequest request, String... parameterNames) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String name : parameterNames) {
+            String[] values = request.getParameterValues(name);
+            if (values != null) {
+                parameters.put(name, String.join(",", values));
+            }
+        }
+        return requestKey(request.getRequestURI(), parameters);
+    }
+
+    // parameters are sorted so the same search in a different order shares the entry.
+    // values are user input, they are escaped the way popular cache keys are so one request cannot pass for another
+    public static String requestKey(String uri, Map<String, String> parameters) {
+        List<String> parts = new ArrayList<>();
+        parts.add(uri);
+        new TreeMap<>(parameters).forEach((name, value) -> {
+            parts.add(name);
+            parts.add(value);
+        });
+        return PopularCacheKeys.member(parts.toArray(String[]::new));
+    }
+}
@@ -1,48 +1,159 @@
 package dev.peter.flightbooking.controller;
 
+import dev.peter.flightbooking.cache.FlightCacheKeys;
+import dev.peter.flightbooking.cache.FlightDataVersions;
+import dev.peter.flightbooking.cache.PopularCacheKeys;
+import dev.peter.flightbooking.config.FlightETagProperties;
+import dev.peter.flightbooking.dto.ConnectionResponseDto;
+import dev.peter.flightbooking.dto.FlightPageResponseDto;
 import dev.peter.flightbooking.dto.FlightRequestDto;
 import dev.peter.flightbooking.dto.FlightResponseDto;
 import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.service.CacheWarmUpService;
+import dev.peter.flightbooking.service.FlightExportService;
+import dev.peter.flightbooking.service.FlightImportService;
 import dev.peter.flightbooking.service.FlightService;
+import dev.peter.flightbooking.service.RouteGraphService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 @RestController
-@RequestMapping("/v1/api/flights")
+@RequestMapping(FlightController.PATH)
 @RequiredArgsConstructor
 public class FlightController {
 
     private final FlightService flightService;
 
+    private final RouteGraphService routeGraphService;
+
+    private final FlightImportService flightImportService;
+
+    private final FlightExportService flightExportService;
+
+    private final EncodedResponseCache encodedResponseCache;
+
+    private final FlightDataVersions flightDataVersions;
+
+    private final FlightETagProperties eTagProperties;
+
+    private final PopularCacheKeys popularCacheKeys;
+
     private static final Logger log = LoggerFactory.getLogger(FlightController.class);
 
+    public static final String PATH = "/v1/api/flights";
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String STALE_SECONDS_HEADER = "X-Stale-Seconds";
+
+    private static ResponseEntity<List<FlightResponseDto>> pageResponse(FlightPageResponseDto page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        if (page.staleSeconds() != null) {
+            response.header(STALE_SECONDS_HEADER, String.valueOf(page.staleSeconds()));
+        }
+        return response.body(page.flights());
+    }
+
+    // with the response cache enabled a hit is written from cached bytes without touching the service
+    private ResponseEntity<?> pageResponse(HttpServletRequest request, String key, String route, Supplier<FlightPageResponseDto> page) {
+        if (!eTagProperties.enabled()) {
+            return encodedPageResponse(request, key, route, page);
+        }
+        // gzip and identity bodies are different representations and need different strong etags
+        boolean gzipVariant = encodedResponseCache.isEnabled() && EncodedResponseCache.acceptsGzip(request);
+        String etag = "\"" + flightDataVersions.etag(route, key) + (gzipVariant ? "-gzip" : "") + "\"";
+        if (isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity<?> response = encodedPageResponse(request, key, route, page);
+        // a page from the stale fallback gets no validator, so revalidating after the outage downloads current data
+        if (response.getHeaders().containsKey(STALE_SECONDS_HEADER)) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag(etag)
+                .body(response.getBody());
+    }
+
+    private ResponseEntity<?> encodedPageResponse(HttpServletRequest request, String key, String route, Supplier<FlightPageResponseDto> page) {
+        return encodedResponseCache.isEnabled()
+                ? encodedResponseCache.respond(request, key, route, page)
+                : pageResponse(page.get());
+    }
+
+    // first pages are what users land on, their hit counts pick the keys warmed at startup.
+    // recorded before any cache is asked so hits served from the response cache count too. filterUnavailable and size
+    // are kept as sent, warm-up needs them to rebuild the response cache key of the request
+    private void recordFirstPageHit(HttpServletRequest request, String cursor, String cacheName, String... locationOrDates) {
+        if (cursor == null) {
+            String[] args = Arrays.copyOf(locationOrDates, locationOrDates.length + 2);
+            args[locationOrDates.length] = Objects.toString(request.getParameter("filterUnavailable"), "");
+            args[locationOrDates.length + 1] = Objects.toString(request.getParameter("size"), "");
+            popularCacheKeys.recordHit(cacheName, args);
+        }
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                // if-none-match uses the weak comparison
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
     @GetMapping(
             params = {
             "startLocation"
     })
-    public ResponseEntity<List<FlightResponseDto>> getFLightsByStartLocation(
+    public ResponseEntity<?> getFLightsByStartLocation(
             @RequestParam String startLocation,
-            @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable
+            @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
     ) {
 //        log.info(Thread.currentThread().toString());
-        return new ResponseEntity<>(flightService.getFLightsByStartLocation(startLocation, filterUnavailable), HttpStatus.OK);
+        recordFirstPageHit(request, cursor, CacheWarmUpService.START_LOCATION_CACHE, startLocation);
+        String key = EncodedResponseCache.requestKey(request, "startLocation", "filterUnavailable", "cursor", "size");
+        return pageResponse(request, key, FlightCacheKeys.startLocationRoute(startLocation), () -> flightService.getFLightsByStartLocation(startLocation, filterUnavailable, cursor, size));
     }
 
     @GetMapping(
             params = {
             "endLocation"
     })
-    public ResponseEntity<List<FlightResponseDto>> getFLightsByEndLocation(
+    public ResponseEntity<?> getFLightsByEndLocation(
             @RequestParam String endLocation,
-            @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable
+            @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
     ) {
-        return new ResponseEntity<>(flightService.getFLightsByEndLocation(endLocation, filterUnavailable), HttpStatus.OK);
+        recordFirstPageHit(request, cursor, CacheWarmUpService.END_LOCATION_CACHE, endLocation);
+        String key = EncodedResponseCache.requestKey(request, "endLocation", "filterUnavailable", "cursor", "size");
+        return pageResponse(request, key, FlightCacheKeys.endLocationRoute(endLocation), () -> flightService.getFLightsByEndLocation(endLocation, filterUnavailable, cursor, size));
     }
 
     @GetMapping(
@@ -50,12 +161,47 @@ public class FlightController {
             "startDate",
             "endDate"
     })
-    public ResponseEntity<List<FlightResponseDto>> getFLightsByTimeFrame(
+    public ResponseEntity<?> getFLightsByTimeFrame(
             @RequestParam String startDate,
             @RequestParam String endDate,
+            @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
+    ) {
+        recordFirstPageHit(request, cursor, CacheWarmUpService.TIME_FRAME_CACHE, startDate, endDate);
+        String key = EncodedResponseCache.requestKey(request, "startDate", "endDate", "filterUnavailable", "cursor", "size");
+        return pageResponse(request, key, FlightCacheKeys.ALL_FLIGHTS, () -> flightService.getFLightsByTimeFrame(startDate, endDate, filterUnavailable, cursor, size));
+    }
+
+    @GetMapping("search")
+    public ResponseEntity<?> searchFlights(
+            @RequestParam(required = false) String startLocation,
+            @RequestParam(required = false) String endLocation,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request
+    ) {
+        String key = EncodedResponseCache.requestKey(request, "startLocation", "endLocation", "startDate", "endDate", "minPrice", "maxPrice", "filterUnavailable", "cursor", "size");
+        return pageResponse(request, key, FlightCacheKeys.ALL_FLIGHTS, () -> flightService.searchFlights(startLocation, endLocation, startDate, endDate, minPrice, maxPrice, filterUnavailable, cursor, size));
+    }
+
+    @GetMapping("connections")
+    public ResponseEntity<List<ConnectionResponseDto>> getConnections(
+            @RequestParam String startLocation,
+            @RequestParam String endLocation,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) Integer minLayover,
+            @RequestParam(required = false) Integer maxLegs,
+            @RequestParam(required = false, defaultValue = "CHEAPEST") RouteGraphService.ConnectionSort sort,
             @RequestParam(required = false, defaultValue = "false") boolean filterUnavailable
     ) {
-        return new ResponseEntity<>(flightService.getFLightsByTimeFrame(startDate, endDate, filterUnavailable), HttpStatus.OK);
+        return new ResponseEntity<>(routeGraphService.findConnections(startLocation, endLocation, startDate, minLayover, maxLegs, sort, filterUnavailable), HttpStatus.OK);
     }
 
     @PostMapping
@@ -63,6 +209,29 @@ public class FlightController {
         return new ResponseEntity<>(flightService.createFlight(flightRequestDto), HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importFlights(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, HttpServletRequest request) throws IOException {
+        FlightImportService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? FlightImportService.Format.CSV
+                : FlightImportService.Format.NDJSON;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(flightImportService.importFlights(request.getInputStream(), format));
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportFlights(
+            @RequestParam(required = false, defaultValue = "NDJSON") FlightImportService.Format format
+    ) {
+        MediaType contentType = format == FlightImportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=flights." + format.name().toLowerCase())
+                .body(flightExportService.exportFlights(format));
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<Void> deleteFlight(@PathVariable Integer id) {
         flightService.deleteFlight(id);
@@ -0,0 +1,11 @@
+package dev.peter.flightbooking.dto;
+
+import java.util.List;
+
+public record ConnectionResponseDto(
+        List<FlightResponseDto> flights,
+
+        Double totalPrice,
+
+        Long durationMinutes
+) {}
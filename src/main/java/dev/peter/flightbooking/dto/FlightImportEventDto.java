@@ -0,0 +1,31 @@
+package dev.peter.flightbooking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// one line of the import response stream: a row error, batch progress or the final summary
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FlightImportEventDto(
+        String type,
+
+        Long line,
+
+        String message,
+
+        Long processed,
+
+        Long imported,
+
+        Long failed
+) {
+    public static FlightImportEventDto error(long line, String message) {
+        return new FlightImportEventDto("error", line, message, null, null, null);
+    }
+
+    public static FlightImportEventDto progress(long processed, long imported, long failed) {
+        return new FlightImportEventDto("progress", null, null, processed, imported, failed);
+    }
+
+    public static FlightImportEventDto summary(long processed, long imported, long failed) {
+        return new FlightImportEventDto("summary", null, null, processed, imported, failed);
+    }
+}
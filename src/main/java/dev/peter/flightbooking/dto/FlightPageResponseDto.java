@@ -0,0 +1,16 @@
+package dev.peter.flightbooking.dto;
+
+import java.util.List;
+
+public record FlightPageResponseDto(
+        List<FlightResponseDto> flights,
+
+        String nextCursor,
+
+        // seconds since the page was loaded from the database, null when it is current
+        Long staleSeconds
+) {
+    public FlightPageResponseDto(List<FlightResponseDto> flights, String nextCursor) {
+        this(flights, nextCursor, null);
+    }
+}
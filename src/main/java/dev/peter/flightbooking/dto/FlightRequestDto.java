@@ -12,5 +12,10 @@ public record FlightRequestDto(
         Timestamp endDate,
         String startLocation,
         String endLocation,
-        boolean isAvailable
-) {}
+        boolean isAvailable,
+        Integer capacity
+) {
+    public FlightRequestDto(String name, Double price, Timestamp startDate, Timestamp endDate, String startLocation, String endLocation, boolean isAvailable) {
+        this(name, price, startDate, endDate, startLocation, endLocation, isAvailable, null);
+    }
+}
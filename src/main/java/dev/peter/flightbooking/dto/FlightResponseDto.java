@@ -17,6 +17,13 @@ public record FlightResponseDto(
 
         String endLocation,
 
-        boolean isAvailable
+        boolean isAvailable,
+
+        Integer capacity,
+
+        Integer seatsRemaining
 ) {
+    public FlightResponseDto(Integer id, String name, Double price, Timestamp startDate, Timestamp endDate, String startLocation, String endLocation, boolean isAvailable) {
+        this(id, name, price, startDate, endDate, startLocation, endLocation, isAvailable, null, null);
+    }
 }
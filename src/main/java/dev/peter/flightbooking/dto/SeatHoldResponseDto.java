@@ -0,0 +1,11 @@
+package dev.peter.flightbooking.dto;
+
+import java.sql.Timestamp;
+
+public record SeatHoldResponseDto(
+        String holdId,
+
+        Integer flightId,
+
+        Timestamp expiresAt
+) {}
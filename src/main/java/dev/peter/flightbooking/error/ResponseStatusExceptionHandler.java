@@ -17,6 +17,6 @@ public class ResponseStatusExceptionHandler extends ResponseEntityExceptionHandl
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(exception.getStatusCode(), Objects.requireNonNullElse(exception.getCause(), new Throwable("")).getMessage());
         problemDetail.setType(URI.create("https://developer.mozilla.org/en-US/docs/Web/HTTP/Status/" + exception.getStatusCode().value()));
         problemDetail.setTitle(exception.getReason());
-        return new ResponseEntity<>(problemDetail, exception.getStatusCode());
+        return new ResponseEntity<>(problemDetail, exception.getHeaders(), exception.getStatusCode());
     }
 }
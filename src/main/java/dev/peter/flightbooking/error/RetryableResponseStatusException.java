@@ -0,0 +1,31 @@
+package dev.peter.flightbooking.error;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+// tells the client when to try again through the Retry-After header
+public class RetryableResponseStatusException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public RetryableResponseStatusException(HttpStatusCode status, String reason, Throwable cause, Duration retryAfter) {
+        super(status, reason, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        // Retry-After is whole seconds, rounding down would invite a retry that is rejected again
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        return headers;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.peter.flightbooking.event;
+
+import dev.peter.flightbooking.model.Flight;
+
+// published after a flight is created, edited or deleted, flight is null for deletions.
+// previous locations are set when an edit or deletion takes the flight off a route.
+// seatsOnly marks bookings, which change nothing a search or time frame matches on
+public record FlightChangedEvent(Integer flightId, Flight flight, String previousStartLocation, String previousEndLocation, boolean seatsOnly) {
+
+    public static FlightChangedEvent saved(Flight flight) {
+        return new FlightChangedEvent(flight.getId(), flight, null, null, false);
+    }
+
+    public static FlightChangedEvent seatsChanged(Flight flight) {
+        return new FlightChangedEvent(flight.getId(), flight, null, null, true);
+    }
+
+    public static FlightChangedEvent edited(Flight flight, String previousStartLocation, String previousEndLocation) {
+        return new FlightChangedEvent(flight.getId(), flight, previousStartLocation, previousEndLocation, false);
+    }
+
+    public static FlightChangedEvent deleted(Integer flightId) {
+        return new FlightChangedEvent(flightId, null, null, null, false);
+    }
+
+    public static FlightChangedEvent deleted(Flight flight) {
+        return new FlightChangedEvent(flight.getId(), null, flight.getStartLocation(), flight.getEndLocation(), false);
+    }
+
+    public boolean isDeletion() {
+        return flight == null;
+    }
+}
@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 import java.util.Set;
@@ -17,6 +19,9 @@ import static java.util.Objects.isNull;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cacheable
+// region names are keys of application.conf, which reads dots as nesting
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
 public class Customer {
 
     @Id
@@ -32,6 +37,8 @@ public class Customer {
     @Enumerated(value = EnumType.STRING)
     private Role role;
 
+    // bookings are written by native queries on the join table, which evict this region through their query space
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customerBookedFlights")
     @ManyToMany(cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     @JoinTable(
             name = "customers_flights",
@@ -6,6 +6,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Check;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.sql.Timestamp;
@@ -18,10 +23,25 @@ import static java.util.Objects.isNull;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+// seat updates leave the region alone, CustomerService evicts the one flight they change, see application.conf for its limits
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "flight")
+// flights of a cached bookedFlights collection are loaded by id, batches keep a region miss from loading them one by one
+@BatchSize(size = 50)
+// seats are changed by conditional updates only, so entity updates must not write back stale seat counts
+@DynamicUpdate
+@Check(constraints = "seats_remaining >= 0 and seats_remaining <= capacity")
+@Table(indexes = {
+        @Index(name = "idx_flight_start_location_start_date", columnList = "startLocation, startDate"),
+        @Index(name = "idx_flight_end_location_start_date", columnList = "endLocation, startDate"),
+        @Index(name = "idx_flight_start_date_end_date", columnList = "startDate, endDate")
+})
 public class Flight implements Serializable {
 
+    // pooled ids keep insert batching possible, identity columns force one insert per flush
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flight_seq")
+    @SequenceGenerator(name = "flight_seq", sequenceName = "flight_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false)
@@ -45,6 +65,30 @@ public class Flight implements Serializable {
     @Column(nullable = false)
     private boolean isAvailable = true;
 
+    // null capacity means the flight is not inventory controlled
+    private Integer capacity;
+
+    private Integer seatsRemaining;
+
+    public Flight(Integer id, String name, Double price, Timestamp startDate, Timestamp endDate, String startLocation, String endLocation, boolean isAvailable) {
+        this(id, name, price, startDate, endDate, startLocation, endLocation, isAvailable, null, null);
+    }
+
+    public static Flight fromDto(FlightRequestDto flightRequestDto) {
+        return new Flight(
+                null,
+                flightRequestDto.name(),
+                flightRequestDto.price(),
+                flightRequestDto.startDate(),
+                flightRequestDto.endDate(),
+                flightRequestDto.startLocation(),
+                flightRequestDto.endLocation(),
+                flightRequestDto.isAvailable(),
+                flightRequestDto.capacity(),
+                flightRequestDto.capacity()
+        );
+    }
+
     public void updateEntityFromDto(FlightRequestDto flightRequestDto) {
         if (isNull(flightRequestDto)) {
             throw new NullPointerException("Invalid flight dto");
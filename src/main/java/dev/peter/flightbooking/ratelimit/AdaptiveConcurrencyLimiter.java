@@ -0,0 +1,145 @@
+package dev.peter.flightbooking.ratelimit;
+
+import dev.peter.flightbooking.config.ConcurrencyLimitProperties;
+import dev.peter.flightbooking.error.RetryableResponseStatusException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// gradient limiter: the limit shrinks when latency rises above its long term average and grows by sqrt(limit) while it does not
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    // weight of a single sample in the long term latency average, roughly the last 100 calls
+    private static final double LONG_RTT_WEIGHT = 0.01;
+
+    // latency may grow this much above the average before the limit is cut
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final ConcurrencyLimitProperties properties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private final Counter rejected;
+
+    // written under the lock, volatile so the gauges see current values
+    private volatile double limit;
+
+    private double longRtt;
+
+    private volatile int inFlight;
+
+    private volatile int queued;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.initialLimit();
+        this.rejected = meterRegistry.counter("db.concurrency.rejected");
+        Gauge.builder("db.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("db.concurrency.in.flight", this, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("db.concurrency.queued", this, AdaptiveConcurrencyLimiter::getQueued).register(meterRegistry);
+    }
+
+    // returns the start time to pass to release
+    public long acquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                await();
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long startNanos) {
+        long rtt = System.nanoTime() - startNanos;
+        lock.lock();
+        try {
+            onSample(rtt, inFlight);
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // for calls whose duration says nothing about database latency, like streaming an export to a slow client
+    public void releaseWithoutSample() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await() {
+        if (queued >= properties.maxQueue()) {
+            throw reject();
+        }
+        queued++;
+        try {
+            long remaining = properties.maxWait().toNanos();
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    throw reject();
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        } finally {
+            queued--;
+        }
+    }
+
+    private RetryableResponseStatusException reject() {
+        rejected.increment();
+        return new RetryableResponseStatusException(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Service Unavailable",
+                new Throwable("Too many concurrent requests, retry later"),
+                properties.retryAfter()
+        );
+    }
+
+    void onSample(long rttNanos, int inFlightAtSample) {
+        longRtt = longRtt == 0 ? rttNanos : longRtt * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+
+        // with less than half the limit in use the sample says nothing about how far the database can be pushed
+        if (inFlightAtSample < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / Math.max(1, rttNanos)));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(properties.minLimit(), Math.min(properties.maxLimit(), newLimit));
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+}
@@ -0,0 +1,63 @@
+package dev.peter.flightbooking.ratelimit;
+
+import dev.peter.flightbooking.config.ConcurrencyLimitProperties;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// database work takes a slot, so requests beyond what the database keeps up with are shed instead of queueing on the connection pool.
+// transactional methods take it before the transaction interceptor borrows a connection, other reads take it per repository call.
+// cache hits, password hashing and warm-up loops between loads hold no slot, and a shed cache load can still fall back to a stale copy
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ConcurrencyLimitAspect {
+
+    // transactional methods and default repository methods call repositories, the nested call must not take a second slot
+    private static final ThreadLocal<Boolean> INSIDE = ThreadLocal.withInitial(() -> false);
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final ConcurrencyLimitProperties properties;
+
+    public ConcurrencyLimitAspect(AdaptiveConcurrencyLimiter limiter, ConcurrencyLimitProperties properties) {
+        this.limiter = limiter;
+        this.properties = properties;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..)) " +
+            "|| (execution(* dev.peter.flightbooking..*(..)) && @annotation(org.springframework.transaction.annotation.Transactional)) " +
+            "|| execution(org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody dev.peter.flightbooking.service..*(..))")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!properties.enabled() || INSIDE.get()) {
+            return joinPoint.proceed();
+        }
+        // streamed responses read the database while the body is written, after the service call returned
+        if (StreamingResponseBody.class.equals(((MethodSignature) joinPoint.getSignature()).getReturnType())) {
+            StreamingResponseBody body = (StreamingResponseBody) joinPoint.proceed();
+            return (StreamingResponseBody) output -> {
+                limiter.acquire();
+                INSIDE.set(true);
+                try {
+                    body.writeTo(output);
+                } finally {
+                    INSIDE.set(false);
+                    limiter.releaseWithoutSample();
+                }
+            };
+        }
+        long start = limiter.acquire();
+        INSIDE.set(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            INSIDE.set(false);
+            limiter.release(start);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.peter.flightbooking.ratelimit;
+
+import dev.peter.flightbooking.config.RateLimitProperties;
+import dev.peter.flightbooking.error.RetryableResponseStatusException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final RedisTokenBucket tokenBucket;
+
+    private final RateLimitProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitInterceptor(RedisTokenBucket tokenBucket, RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.tokenBucket = tokenBucket;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.enabled()) {
+            return true;
+        }
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        String budget = read ? "read" : "write";
+        String key = budget + ":" + clientKey(request);
+
+        RedisTokenBucket.Result result;
+        try {
+            result = read
+                    ? tokenBucket.tryConsume(key, properties.readCapacity(), properties.readRefillPerSecond())
+                    : tokenBucket.tryConsume(key, properties.writeCapacity(), properties.writeRefillPerSecond());
+        } catch (RuntimeException e) {
+            // a redis outage must not take the api down with it, requests pass unlimited until it is back
+            log.warn("Could not check rate limit for {}", key, e);
+            meterRegistry.counter("http.rate.limit", "budget", budget, "result", "error").increment();
+            return true;
+        }
+
+        meterRegistry.counter("http.rate.limit", "budget", budget, "result", result.allowed() ? "allowed" : "rejected").increment();
+        response.setHeader(REMAINING_HEADER, String.valueOf(result.remaining()));
+        if (!result.allowed()) {
+            throw new RetryableResponseStatusException(
+                    HttpStatus.TOO_MANY_REQUESTS,
+                    "Too Many Requests",
+                    new Throwable("Rate limit exceeded, retry in " + result.retryAfter().toMillis() + " ms"),
+                    result.retryAfter()
+            );
+        }
+        return true;
+    }
+
+    // authenticated clients are limited by token subject, anonymous flight searches by address
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuthentication) {
+            return "sub:" + jwtAuthentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
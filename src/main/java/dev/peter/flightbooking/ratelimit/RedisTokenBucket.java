@@ -0,0 +1,61 @@
+package dev.peter.flightbooking.ratelimit;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+public class RedisTokenBucket {
+
+    private static final String KEY_PREFIX = "flightbooking:rate-limit:";
+
+    // refill and take happen in one script so concurrent requests on different nodes cannot both spend the last token,
+    // the redis clock is used so nodes with skewed clocks agree on the refill
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE_SCRIPT = RedisScript.of("""
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2]) / 1000
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local allowed = 0
+            local retryAfter = 0
+            if tokens >= 1 then
+                tokens = tokens - 1
+                allowed = 1
+            else
+                retryAfter = math.ceil((1 - tokens) / rate)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate))
+            return {allowed, math.floor(tokens), retryAfter}
+            """, List.class);
+
+    public record Result(boolean allowed, long remaining, Duration retryAfter) {}
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisTokenBucket(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public Result tryConsume(String key, int capacity, double refillPerSecond) {
+        List<?> result = redisTemplate.execute(
+                TAKE_SCRIPT,
+                List.of(KEY_PREFIX + key),
+                String.valueOf(capacity),
+                String.valueOf(refillPerSecond)
+        );
+        return new Result(
+                ((Number) result.get(0)).longValue() == 1,
+                ((Number) result.get(1)).longValue(),
+                Duration.ofMillis(((Number) result.get(2)).longValue())
+        );
+    }
+}
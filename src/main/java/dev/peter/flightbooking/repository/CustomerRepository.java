@@ -2,18 +2,44 @@ package dev.peter.flightbooking.repository;
 
 import dev.peter.flightbooking.model.Customer;
 import dev.peter.flightbooking.model.Flight;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
     Optional<Customer> findByUsername(String username);
 
     @Query("select c.bookedFlights from Customer c where c.id = ?1")
     Set<Flight> findBookedFlightsByCustomerId(Integer id);
+
+    // single row operations on the join table, the whole bookedFlights set is never loaded.
+    // writes name the join table as their query space, otherwise hibernate evicts every second-level cache region.
+    // customers_flights.flight_id references the customer and customer_id the flight, see Customer.bookedFlights
+    @Query(value = "SELECT COUNT(*) FROM customers_flights WHERE flight_id = :customerId AND customer_id = :flightId", nativeQuery = true)
+    long countBooking(@Param("customerId") Integer customerId, @Param("flightId") Integer flightId);
+
+    // inserts nothing when the booking exists, a truly concurrent duplicate still fails on the primary key and rolls back.
+    // insert select instead of INSERT IGNORE, which h2 does not accept in mysql mode, the selected ids keep their column types
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "customers_flights"))
+    @Query(value = "INSERT INTO customers_flights (flight_id, customer_id) " +
+            "SELECT c.id, f.id FROM customer c, flight f WHERE c.id = :customerId AND f.id = :flightId " +
+            "AND NOT EXISTS (SELECT 1 FROM customers_flights cf WHERE cf.flight_id = c.id AND cf.customer_id = f.id)", nativeQuery = true)
+    int insertBooking(@Param("customerId") Integer customerId, @Param("flightId") Integer flightId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "customers_flights"))
+    @Query(value = "DELETE FROM customers_flights WHERE flight_id = :customerId AND customer_id = :flightId", nativeQuery = true)
+    int deleteBooking(@Param("customerId") Integer customerId, @Param("flightId") Integer flightId);
 }
@@ -1,18 +1,150 @@
 package dev.peter.flightbooking.repository;
 
+import dev.peter.flightbooking.dto.FlightResponseDto;
 import dev.peter.flightbooking.model.Flight;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface FlightRepository extends JpaRepository<Flight, Integer> {
-    @Query(value = "SELECT * FROM flight WHERE CAST(start_date AS DATE) = CAST(?1 AS DATE) AND CAST(end_date AS DATE) = CAST(?2 AS DATE);", nativeQuery = true)
-    List<Flight> findByStartDateAndEndDate(String startDate, String endDate);
+    // keyset pagination on (startDate, id), the leading >= keeps the predicate a range scan on the start_date indexes
+    String KEYSET_CONDITION = "AND (:afterStartDate IS NULL OR (f.startDate >= :afterStartDate " +
+            "AND (f.startDate > :afterStartDate OR f.id > :afterId))) ";
+
+    // page queries select straight into response dtos, rows never become managed entities
+    String RESPONSE_DTO = "SELECT new dev.peter.flightbooking.dto.FlightResponseDto(" +
+            "f.id, f.name, f.price, f.startDate, f.endDate, f.startLocation, f.endLocation, f.isAvailable, f.capacity, f.seatsRemaining) ";
+
     List<Flight> findByEndLocation(String endLocation);
     List<Flight> findByStartLocation(String startLocation);
+
+    // every criterion is optional, date bounds are half-open: [departureFrom, arrivalBefore)
+    @Query(RESPONSE_DTO + "FROM Flight f " +
+            "WHERE (:startLocation IS NULL OR f.startLocation = :startLocation) " +
+            "AND (:endLocation IS NULL OR f.endLocation = :endLocation) " +
+            "AND (:departureFrom IS NULL OR f.startDate >= :departureFrom) " +
+            "AND (:arrivalBefore IS NULL OR f.endDate < :arrivalBefore) " +
+            "AND (:minPrice IS NULL OR f.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR f.price <= :maxPrice) " +
+            "AND (:availableOnly = false OR f.isAvailable = true) " +
+            KEYSET_CONDITION +
+            "ORDER BY f.startDate, f.id")
+    List<FlightResponseDto> searchFlights(
+            @Param("startLocation") String startLocation,
+            @Param("endLocation") String endLocation,
+            @Param("departureFrom") Timestamp departureFrom,
+            @Param("arrivalBefore") Timestamp arrivalBefore,
+            @Param("minPrice") Double minPrice,
+            @Param("maxPrice") Double maxPrice,
+            @Param("availableOnly") boolean availableOnly,
+            @Param("afterStartDate") Timestamp afterStartDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable
+    );
+
+    @Query(RESPONSE_DTO + "FROM Flight f WHERE f.startLocation = :startLocation " +
+            "AND (:availableOnly = false OR f.isAvailable = true) " +
+            KEYSET_CONDITION +
+            "ORDER BY f.startDate, f.id")
+    List<FlightResponseDto> findPageByStartLocation(
+            @Param("startLocation") String startLocation,
+            @Param("availableOnly") boolean availableOnly,
+            @Param("afterStartDate") Timestamp afterStartDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable
+    );
+
+    @Query(RESPONSE_DTO + "FROM Flight f WHERE f.endLocation = :endLocation " +
+            "AND (:availableOnly = false OR f.isAvailable = true) " +
+            KEYSET_CONDITION +
+            "ORDER BY f.startDate, f.id")
+    List<FlightResponseDto> findPageByEndLocation(
+            @Param("endLocation") String endLocation,
+            @Param("availableOnly") boolean availableOnly,
+            @Param("afterStartDate") Timestamp afterStartDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable
+    );
+
+    @Query(RESPONSE_DTO + "FROM Flight f WHERE f.startDate >= :startDateFrom AND f.startDate < :startDateTo " +
+            "AND f.endDate >= :endDateFrom AND f.endDate < :endDateTo " +
+            "AND (:availableOnly = false OR f.isAvailable = true) " +
+            KEYSET_CONDITION +
+            "ORDER BY f.startDate, f.id")
+    List<FlightResponseDto> findPageByStartDateInRangeAndEndDateInRange(
+            @Param("startDateFrom") Timestamp startDateFrom,
+            @Param("startDateTo") Timestamp startDateTo,
+            @Param("endDateFrom") Timestamp endDateFrom,
+            @Param("endDateTo") Timestamp endDateTo,
+            @Param("availableOnly") boolean availableOnly,
+            @Param("afterStartDate") Timestamp afterStartDate,
+            @Param("afterId") Integer afterId,
+            Pageable pageable
+    );
+
+    default List<FlightResponseDto> findPageByStartDateAndEndDate(String startDate, String endDate, boolean availableOnly, Timestamp afterStartDate, Integer afterId, Pageable pageable) {
+        LocalDate startDay;
+        LocalDate endDay;
+        try {
+            startDay = LocalDate.parse(startDate);
+            endDay = LocalDate.parse(endDate);
+        } catch (DateTimeParseException | NullPointerException e) {
+            return List.of();
+        }
+        return findPageByStartDateInRangeAndEndDateInRange(
+                Timestamp.valueOf(startDay.atStartOfDay()),
+                Timestamp.valueOf(startDay.plusDays(1).atStartOfDay()),
+                Timestamp.valueOf(endDay.atStartOfDay()),
+                Timestamp.valueOf(endDay.plusDays(1).atStartOfDay()),
+                availableOnly,
+                afterStartDate,
+                afterId,
+                pageable
+        );
+    }
+
+    // queries skip the second-level cache, so the seat count is current even if another instance changed it
+    @Query("SELECT f FROM Flight f WHERE f.id = :id")
+    Optional<Flight> findCurrentById(@Param("id") Integer id);
+
+    // single conditional statement, the row lock makes concurrent bookings of the last seats serialize on it.
+    // seat updates name a query space of their own, a bulk update of the flight table would evict the whole flight region.
+    // callers evict the changed flight themselves
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "flight_seats"))
+    @Query(value = "UPDATE flight SET seats_remaining = seats_remaining - 1 WHERE id = :id AND seats_remaining > 0", nativeQuery = true)
+    int reserveSeat(@Param("id") Integer id);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "flight_seats"))
+    @Query(value = "UPDATE flight SET seats_remaining = seats_remaining + 1 WHERE id = :id AND seats_remaining < capacity", nativeQuery = true)
+    int releaseSeat(@Param("id") Integer id);
+
+    // Integer.MIN_VALUE makes the MySQL driver stream rows one by one instead of buffering the whole result set,
+    // the stream has to be consumed inside a transaction and closed afterwards
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT f FROM Flight f ORDER BY f.id")
+    Stream<Flight> streamAllOrderById();
 }
@@ -0,0 +1,96 @@
+package dev.peter.flightbooking.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// keys of the authserver fetched ahead of time and refreshed in the background,
+// validating a token never waits on the jwks endpoint
+public class PrefetchedJwkSource implements JWKSource<SecurityContext>, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefetchedJwkSource.class);
+
+    private final RestClient restClient;
+
+    private final String jwkSetUri;
+
+    private final long minRefreshIntervalNanos;
+
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile JWKSet jwkSet = new JWKSet();
+
+    private volatile long lastRefreshAttempt;
+
+    public PrefetchedJwkSource(RestClient restClient, String jwkSetUri, Duration minRefreshInterval) {
+        this.restClient = restClient;
+        this.jwkSetUri = jwkSetUri;
+        this.minRefreshIntervalNanos = minRefreshInterval.toNanos();
+        this.lastRefreshAttempt = System.nanoTime() - minRefreshIntervalNanos;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        List<JWK> keys = jwkSelector.select(jwkSet);
+        if (keys.isEmpty()) {
+            // most likely rotated keys, the request fails and later ones are validated with the new keys
+            refreshInBackground();
+        }
+        return keys;
+    }
+
+    private void refreshInBackground() {
+        if (System.nanoTime() - lastRefreshAttempt < minRefreshIntervalNanos) {
+            return;
+        }
+        refreshExecutor.execute(this::refresh);
+    }
+
+    // the first run fetches the keys at startup
+    @Scheduled(fixedDelayString = "${app.security.jwt.jwks-refresh-interval:PT5M}")
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        lastRefreshAttempt = System.nanoTime();
+        try {
+            String body = restClient.get()
+                    .uri(jwkSetUri)
+                    .retrieve()
+                    .body(String.class);
+            jwkSet = JWKSet.parse(body);
+            log.debug("Loaded {} keys from {}", jwkSet.getKeys().size(), jwkSetUri);
+        } catch (RestClientException | ParseException | IllegalArgumentException e) {
+            // the keys loaded before stay in use until a refresh succeeds
+            log.warn("Could not load keys from {}", jwkSetUri, e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    public int getKeyCount() {
+        return jwkSet.getKeys().size();
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,177 @@
+package dev.peter.flightbooking.service;
+
+import dev.peter.flightbooking.cache.FlightCacheKeys;
+import dev.peter.flightbooking.cache.PopularCacheKeys;
+import dev.peter.flightbooking.config.CacheWarmUpProperties;
+import dev.peter.flightbooking.controller.EncodedResponseCache;
+import dev.peter.flightbooking.controller.FlightController;
+import dev.peter.flightbooking.dto.FlightPageResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// loads the most requested and the configured page and response cache keys after a deploy or a redis flush.
+// runners complete before the application reports readiness, so traffic only arrives once the caches are warm
+@Service
+@RequiredArgsConstructor
+public class CacheWarmUpService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmUpService.class);
+
+    public static final String START_LOCATION_CACHE = "flightStartLocation";
+
+    public static final String END_LOCATION_CACHE = "flightEndLocation";
+
+    public static final String TIME_FRAME_CACHE = "flightTimeFrame";
+
+    private final FlightService flightService;
+
+    private final PopularCacheKeys popularCacheKeys;
+
+    private final EncodedResponseCache encodedResponseCache;
+
+    private final CacheWarmUpProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    // args are the ones recorded by FlightController for the cache: location or dates, then filterUnavailable and size
+    // as sent, empty when the request left them out
+    record WarmUpKey(String cacheName, List<String> args) {}
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.enabled()) {
+            warmUp();
+        }
+    }
+
+    void warmUp() {
+        long started = System.nanoTime();
+        Set<WarmUpKey> keys = keys();
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore permits = new Semaphore(properties.parallelism());
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (WarmUpKey key : keys) {
+                executor.execute(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        load(key);
+                        loaded.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // routes without flights are answered with 404 and are not cached
+                        failed.incrementAndGet();
+                        log.debug("Could not warm {} entry {}", key.cacheName(), key.args(), e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(properties.timeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Cache warm-up timed out after {}, remaining keys are loaded on first request", properties.timeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - started);
+        meterRegistry.timer("cache.warm.up").record(duration);
+        meterRegistry.counter("cache.warm.up.keys", "result", "loaded").increment(loaded.get());
+        meterRegistry.counter("cache.warm.up.keys", "result", "failed").increment(failed.get());
+        log.info("Cache warm-up loaded {} of {} keys in {} ms", loaded.get(), keys.size(), duration.toMillis());
+    }
+
+    // configured keys first, then the most requested ones, duplicates are loaded once
+    Set<WarmUpKey> keys() {
+        Set<WarmUpKey> keys = new LinkedHashSet<>();
+        properties.startLocations().forEach(location -> keys.add(new WarmUpKey(START_LOCATION_CACHE, List.of(location, "", ""))));
+        properties.endLocations().forEach(location -> keys.add(new WarmUpKey(END_LOCATION_CACHE, List.of(location, "", ""))));
+        properties.timeFrames().forEach(timeFrame -> {
+            String[] dates = timeFrame.split("/", 2);
+            if (dates.length == 2) {
+                keys.add(new WarmUpKey(TIME_FRAME_CACHE, List.of(dates[0], dates[1], "", "")));
+            } else {
+                log.warn("Ignoring warm-up time frame {}, expected startDate/endDate", timeFrame);
+            }
+        });
+
+        try {
+            for (String cacheName : List.of(START_LOCATION_CACHE, END_LOCATION_CACHE, TIME_FRAME_CACHE)) {
+                popularCacheKeys.top(cacheName, properties.topKeys())
+                        .forEach(args -> keys.add(new WarmUpKey(cacheName, args)));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not read hit counts, warming configured keys only", e);
+        }
+        return keys;
+    }
+
+    private void load(WarmUpKey key) {
+        List<String> args = key.args();
+        switch (key.cacheName()) {
+            case START_LOCATION_CACHE -> load(
+                    FlightCacheKeys.startLocationRoute(args.get(0)),
+                    parameters(Map.of("startLocation", args.get(0)), args.get(1), args.get(2)),
+                    () -> flightService.getFLightsByStartLocation(args.get(0), Boolean.parseBoolean(args.get(1)), null, size(args.get(2)))
+            );
+            case END_LOCATION_CACHE -> load(
+                    FlightCacheKeys.endLocationRoute(args.get(0)),
+                    parameters(Map.of("endLocation", args.get(0)), args.get(1), args.get(2)),
+                    () -> flightService.getFLightsByEndLocation(args.get(0), Boolean.parseBoolean(args.get(1)), null, size(args.get(2)))
+            );
+            case TIME_FRAME_CACHE -> load(
+                    FlightCacheKeys.ALL_FLIGHTS,
+                    parameters(Map.of("startDate", args.get(0), "endDate", args.get(1)), args.get(2), args.get(3)),
+                    () -> flightService.getFLightsByTimeFrame(args.get(0), args.get(1), Boolean.parseBoolean(args.get(2)), null, size(args.get(3)))
+            );
+            default -> throw new IllegalArgumentException("Unknown warm-up cache " + key.cacheName());
+        }
+    }
+
+    // the encoded response is built from the loaded page, so one load warms both caches
+    private void load(String route, Map<String, String> parameters, Supplier<FlightPageResponseDto> pageLoader) {
+        if (encodedResponseCache.isEnabled()) {
+            encodedResponseCache.warm(EncodedResponseCache.requestKey(FlightController.PATH, parameters), route, pageLoader);
+        } else {
+            pageLoader.get();
+        }
+    }
+
+    // request parameters of the warmed key, the same map the response cache keys a request by
+    private static Map<String, String> parameters(Map<String, String> search, String filterUnavailable, String size) {
+        Map<String, String> parameters = new HashMap<>(search);
+        if (!filterUnavailable.isEmpty()) {
+            parameters.put("filterUnavailable", filterUnavailable);
+        }
+        if (!size.isEmpty()) {
+            parameters.put("size", size);
+        }
+        return parameters;
+    }
+
+    private static Integer size(String value) {
+        return value.isEmpty() ? null : Integer.valueOf(value);
+    }
+}
@@ -1,27 +1,32 @@
 package dev.peter.flightbooking.service;
 
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
 import dev.peter.flightbooking.dto.*;
+import dev.peter.flightbooking.event.FlightChangedEvent;
 import dev.peter.flightbooking.model.Customer;
 import dev.peter.flightbooking.model.Flight;
 import dev.peter.flightbooking.model.Role;
 import dev.peter.flightbooking.repository.CustomerRepository;
 import dev.peter.flightbooking.repository.FlightRepository;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashSet;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 @Service
 @RequiredArgsConstructor
-@RateLimiter(name = "simpleRateLimit")
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
@@ -30,6 +35,12 @@ public class CustomerService {
 
     private final PasswordEncoder passwordEncoder;
 
+    private final FlightCacheInvalidator flightCacheInvalidator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final EntityManagerFactory entityManagerFactory;
+
     @PreAuthorize("hasAuthority('SCOPE_user.read')")
     public CustomerResponseDto getCustomerById(Integer id) {
         Customer customer = customerRepository.findById(id)
@@ -43,7 +54,7 @@ public class CustomerService {
         );
     }
 
-    @Transactional
+    // not transactional, the single save needs no transaction of its own and hashing would hold a connection
 //    @PreAuthorize("hasAuthority('SCOPE_user.write')")
     public CustomerResponseDto createCustomer(CustomerRequestDto customerRequestDto) {
 
@@ -86,6 +97,13 @@ public class CustomerService {
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found", new Throwable("Customer with id " + id + " does not exist")));
 
+        if (nonNull(customerRequestDto.password())) {
+            customerRequestDto = new CustomerRequestDto(
+                    customerRequestDto.username(),
+                    passwordEncoder.encode(customerRequestDto.password()),
+                    customerRequestDto.role()
+            );
+        }
         customer.updateEntityFromDto(customerRequestDto);
 
         customerRepository.save(customer);
@@ -129,30 +147,73 @@ public class CustomerService {
     @Transactional
     @PreAuthorize("hasAuthority('SCOPE_user.write')")
     public CustomerBookingResponseDto bookCustomerFlight(Integer id, CustomerBookingRequestDto bookingRequest) {
-        Customer customer = customerRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found", new Throwable("Customer with id " + id + " does not exist")));
+        if (!customerRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found", new Throwable("Customer with id " + id + " does not exist"));
+        }
+
+        Integer flightId = bookingRequest.flightId();
+        Flight flight = flightRepository.findById(flightId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights with id " + flightId)));
 
-        Flight flight = flightRepository.findById(bookingRequest.flightId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights with id " + bookingRequest.flightId())));
+        if (customerRepository.countBooking(id, flightId) > 0) {
+            return new CustomerBookingResponseDto(customerRepository.findBookedFlightsByCustomerId(id));
+        }
 
-        customer.getBookedFlights().add(flight);
+        boolean inventoryControlled = nonNull(flight.getCapacity());
+        if (inventoryControlled) {
+            if (flightRepository.reserveSeat(flightId) == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Flight sold out", new Throwable("No seats remaining on flight with id " + flightId));
+            }
+        }
 
-        customerRepository.save(customer);
+        // a concurrent request of the same customer already booked the flight, give the seat back
+        if (customerRepository.insertBooking(id, flightId) == 0) {
+            if (inventoryControlled) {
+                flightRepository.releaseSeat(flightId);
+            }
+        } else if (inventoryControlled) {
+            seatsChanged(flight);
+        }
 
-        return new CustomerBookingResponseDto(customer.getBookedFlights());
+        // reserveSeat cleared the persistence context, so the booked flights are read with their current seat counts
+        return new CustomerBookingResponseDto(customerRepository.findBookedFlightsByCustomerId(id));
     }
 
     @Transactional
     @PreAuthorize("hasAuthority('SCOPE_user.write')")
     public void deleteBookedCustomerFlight(Integer id, Integer flightId) {
-        Customer customer = customerRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found", new Throwable("Customer with id " + id + " does not exist")));
+        if (!customerRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found", new Throwable("Customer with id " + id + " does not exist"));
+        }
 
-        Flight flight = flightRepository.findById(flightId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights with id " + flightId)));
+        if (!flightRepository.existsById(flightId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights with id " + flightId));
+        }
+
+        if (customerRepository.deleteBooking(id, flightId) > 0 && flightRepository.releaseSeat(flightId) > 0) {
+            flightRepository.findById(flightId).ifPresent(this::seatsChanged);
+        }
+    }
 
-        customer.getBookedFlights().remove(flight);
+    // seat counts change through bulk updates the hibernate listener never sees, so the cached pages listing
+    // the flight are evicted and its routes get a new data version here
+    private void seatsChanged(Flight flight) {
+        evictFlight(flight.getId());
+        flightCacheInvalidator.seatsChanged(flight);
+        eventPublisher.publishEvent(FlightChangedEvent.seatsChanged(flight));
+    }
 
-        customerRepository.save(customer);
+    // seat updates leave the second-level cache alone, so the changed flight is evicted here.
+    // evicted again once the booking commits, a concurrent read may have cached the old seat count meanwhile
+    private void evictFlight(Integer flightId) {
+        entityManagerFactory.getCache().evict(Flight.class, flightId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entityManagerFactory.getCache().evict(Flight.class, flightId);
+                }
+            });
+        }
     }
 }
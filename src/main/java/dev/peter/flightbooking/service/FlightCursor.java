@@ -0,0 +1,44 @@
+package dev.peter.flightbooking.service;
+
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import static java.util.Objects.isNull;
+
+// opaque keyset position (startDate, id) of the last flight of a page
+public record FlightCursor(Timestamp startDate, Integer id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static FlightCursor of(FlightResponseDto flight) {
+        return new FlightCursor(flight.startDate(), flight.id());
+    }
+
+    public static FlightCursor decode(String cursor) {
+        if (isNull(cursor) || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.lastIndexOf(SEPARATOR);
+            return new FlightCursor(
+                    Timestamp.valueOf(LocalDateTime.parse(decoded.substring(0, separatorIndex))),
+                    Integer.valueOf(decoded.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Invalid page cursor " + cursor));
+        }
+    }
+
+    public String encode() {
+        String raw = startDate.toLocalDateTime().toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,116 @@
+package dev.peter.flightbooking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static java.util.Objects.isNull;
+
+@Service
+@RequiredArgsConstructor
+public class FlightExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightExportService.class);
+
+    // rows are pushed to the client every FLUSH_EVERY flights so a slow reader does not pile them up in the writer
+    private static final int FLUSH_EVERY = 1000;
+
+    private final FlightRepository flightRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    // authorization is checked when the export is requested, rows are read while the response is streamed
+    @PreAuthorize("hasAuthority('SCOPE_user.write')")
+    public StreamingResponseBody exportFlights(FlightImportService.Format format) {
+        return output -> exportFlights(format, output);
+    }
+
+    void exportFlights(FlightImportService.Format format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == FlightImportService.Format.CSV) {
+            writer.write(String.join(",", FlightImportService.CSV_COLUMNS));
+            writer.write('\n');
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        long started = System.nanoTime();
+        long exported;
+        try {
+            exported = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Stream<Flight> flights = flightRepository.streamAllOrderById()) {
+                    for (Flight flight : (Iterable<Flight>) flights::iterator) {
+                        writer.write(format == FlightImportService.Format.CSV ? toCsvRow(flight) : toJsonRow(flight));
+                        writer.write('\n');
+                        // the persistence context would otherwise keep every exported flight until the transaction ends
+                        entityManager.detach(flight);
+                        if (++count % FLUSH_EVERY == 0) {
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            }));
+        } catch (UncheckedIOException e) {
+            log.warn("Flight export aborted, client stopped reading", e);
+            throw e.getCause();
+        }
+        writer.flush();
+
+        meterRegistry.counter("flight.export.rows", "format", format.name().toLowerCase()).increment(exported);
+        log.info("Flight export finished, {} flights exported in {} ms", exported, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private String toJsonRow(Flight flight) throws IOException {
+        return objectMapper.writeValueAsString(FlightService.mapToResponseDto(flight));
+    }
+
+    // same columns and formats the csv import accepts, so an export can be imported back
+    private static String toCsvRow(Flight flight) {
+        return String.join(",",
+                FlightImportService.toCsvField(flight.getName()),
+                String.valueOf(flight.getPrice()),
+                formatTimestamp(flight.getStartDate()),
+                formatTimestamp(flight.getEndDate()),
+                FlightImportService.toCsvField(flight.getStartLocation()),
+                FlightImportService.toCsvField(flight.getEndLocation()),
+                String.valueOf(flight.isAvailable()),
+                Objects.toString(flight.getCapacity(), "")
+        );
+    }
+
+    private static String formatTimestamp(Timestamp timestamp) {
+        return isNull(timestamp) ? "" : timestamp.toLocalDateTime().toString();
+    }
+}
@@ -0,0 +1,308 @@
+package dev.peter.flightbooking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.peter.flightbooking.config.FlightImportProperties;
+import dev.peter.flightbooking.dto.FlightImportEventDto;
+import dev.peter.flightbooking.dto.FlightRequestDto;
+import dev.peter.flightbooking.event.FlightChangedEvent;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+@Service
+@RequiredArgsConstructor
+public class FlightImportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(FlightImportService.class);
+
+    static final List<String> CSV_COLUMNS = List.of("name", "price", "startDate", "endDate", "startLocation", "endLocation", "isAvailable", "capacity");
+
+    private final FlightRepository flightRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final FlightImportProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    // entities are created per save attempt, a rolled back attempt leaves its generated ids on the flights
+    private record Row(long line, FlightRequestDto flightRequestDto) {}
+
+    private static class Progress {
+        private long processed;
+        private long imported;
+        private long failed;
+    }
+
+    // authorization is checked when the import is requested, rows are read while the response is streamed
+    @PreAuthorize("hasAuthority('SCOPE_user.write')")
+    public StreamingResponseBody importFlights(InputStream input, Format format) {
+        return output -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                importFlights(reader, format, output);
+            }
+        };
+    }
+
+    void importFlights(BufferedReader reader, Format format, OutputStream output) throws IOException {
+        Progress progress = new Progress();
+        List<Row> batch = new ArrayList<>(properties.batchSize());
+        Map<String, Integer> csvColumns = null;
+
+        String value;
+        long line = 0;
+        while ((value = reader.readLine()) != null) {
+            line++;
+            long recordLine = line;
+            if (value.isBlank()) {
+                continue;
+            }
+            // a quoted csv field can contain line breaks, the record goes on until its quotes are balanced
+            String next;
+            while (format == Format.CSV && hasOpenQuote(value) && (next = reader.readLine()) != null) {
+                line++;
+                value = value + "\n" + next;
+            }
+            if (format == Format.CSV && isNull(csvColumns)) {
+                try {
+                    csvColumns = parseCsvHeader(value);
+                } catch (IllegalArgumentException e) {
+                    write(output, FlightImportEventDto.error(recordLine, e.getMessage()));
+                    write(output, FlightImportEventDto.summary(0, 0, 0));
+                    return;
+                }
+                continue;
+            }
+
+            progress.processed++;
+            try {
+                FlightRequestDto flightRequestDto = format == Format.CSV ? parseCsvRow(value, csvColumns) : parseJsonRow(value);
+                validate(flightRequestDto);
+                batch.add(new Row(recordLine, flightRequestDto));
+            } catch (IllegalArgumentException e) {
+                progress.failed++;
+                write(output, FlightImportEventDto.error(recordLine, e.getMessage()));
+            }
+
+            if (batch.size() >= properties.batchSize()) {
+                saveBatch(batch, progress, output);
+            }
+        }
+        saveBatch(batch, progress, output);
+
+        meterRegistry.counter("flight.import.rows", "result", "imported").increment(progress.imported);
+        meterRegistry.counter("flight.import.rows", "result", "failed").increment(progress.failed);
+        log.info("Flight import finished, {} rows processed, {} imported, {} failed", progress.processed, progress.imported, progress.failed);
+        write(output, FlightImportEventDto.summary(progress.processed, progress.imported, progress.failed));
+    }
+
+    private void saveBatch(List<Row> batch, Progress progress, OutputStream output) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Flight> flights = save(batch);
+            progress.imported += flights.size();
+        } catch (DataAccessException e) {
+            // one bad row fails the whole jdbc batch, saving the rows one by one imports the others and pins the error
+            log.warn("Flight import batch of lines {}-{} failed, retrying row by row", batch.get(0).line(), batch.get(batch.size() - 1).line(), e);
+            for (Row row : batch) {
+                try {
+                    save(List.of(row));
+                    progress.imported++;
+                } catch (DataAccessException rowException) {
+                    progress.failed++;
+                    write(output, FlightImportEventDto.error(row.line(), "Could not save flight: " + rowException.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+        batch.clear();
+        write(output, FlightImportEventDto.progress(progress.processed, progress.imported, progress.failed));
+    }
+
+    private List<Flight> save(List<Row> rows) {
+        List<Flight> flights = rows.stream().map(row -> Flight.fromDto(row.flightRequestDto())).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            // flushing through the repository translates constraint violations into DataAccessException,
+            // inserts go out as jdbc batches and clearing keeps the persistence context from growing with the file
+            flightRepository.saveAllAndFlush(flights);
+            entityManager.clear();
+            // published within the transaction, so the batch's routes get one data version once it commits
+            flights.forEach(flight -> eventPublisher.publishEvent(FlightChangedEvent.saved(flight)));
+        });
+        return flights;
+    }
+
+    private void write(OutputStream output, FlightImportEventDto event) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(event));
+        output.write('\n');
+        output.flush();
+    }
+
+    private static boolean hasOpenQuote(String record) {
+        return record.chars().filter(c -> c == '"').count() % 2 != 0;
+    }
+
+    // rfc 4180 fields, quoted fields may contain commas, line breaks and quotes doubled as ""
+    static String[] parseCsvRecord(String record) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted && c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                value.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values.toArray(String[]::new);
+    }
+
+    // quotes only the fields that need it, so plain values are written exactly as before
+    static String toCsvField(String value) {
+        if (isNull(value)) {
+            return "";
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static Map<String, Integer> parseCsvHeader(String header) {
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = parseCsvRecord(header);
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim(), i);
+        }
+        if (!columns.keySet().containsAll(List.of("name", "price", "startDate", "startLocation"))) {
+            throw new IllegalArgumentException("CSV header must contain at least name, price, startDate and startLocation, supported columns: " + CSV_COLUMNS);
+        }
+        return columns;
+    }
+
+    private static String column(String[] values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (isNull(index) || index >= values.length || values[index].isBlank()) {
+            return null;
+        }
+        return values[index].trim();
+    }
+
+    private static Timestamp parseTimestamp(String value, String column) {
+        if (isNull(value)) {
+            return null;
+        }
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + column + " " + value + ", expected format yyyy-MM-ddTHH:mm:ss");
+        }
+    }
+
+    private static <T> T parseNumber(String value, String column, Function<String, T> parser) {
+        if (isNull(value)) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + " " + value);
+        }
+    }
+
+    private static FlightRequestDto parseCsvRow(String row, Map<String, Integer> columns) {
+        String[] values = parseCsvRecord(row);
+        String isAvailable = column(values, columns, "isAvailable");
+        return new FlightRequestDto(
+                column(values, columns, "name"),
+                parseNumber(column(values, columns, "price"), "price", Double::valueOf),
+                parseTimestamp(column(values, columns, "startDate"), "startDate"),
+                parseTimestamp(column(values, columns, "endDate"), "endDate"),
+                column(values, columns, "startLocation"),
+                column(values, columns, "endLocation"),
+                isNull(isAvailable) || Boolean.parseBoolean(isAvailable),
+                parseNumber(column(values, columns, "capacity"), "capacity", Integer::valueOf)
+        );
+    }
+
+    private FlightRequestDto parseJsonRow(String row) {
+        try {
+            return objectMapper.readValue(row, FlightRequestDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static void validate(FlightRequestDto flightRequestDto) {
+        if (isNull(flightRequestDto.name()) || flightRequestDto.name().isBlank()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (isNull(flightRequestDto.price())) {
+            throw new IllegalArgumentException("Price is required");
+        }
+        if (isNull(flightRequestDto.startDate())) {
+            throw new IllegalArgumentException("Start date is required");
+        }
+        if (isNull(flightRequestDto.startLocation()) || flightRequestDto.startLocation().isBlank()) {
+            throw new IllegalArgumentException("Start location is required");
+        }
+        if (nonNull(flightRequestDto.endDate()) && flightRequestDto.endDate().before(flightRequestDto.startDate())) {
+            throw new IllegalArgumentException("End date cannot be before start date");
+        }
+        if (nonNull(flightRequestDto.capacity()) && flightRequestDto.capacity() < 0) {
+            throw new IllegalArgumentException("Flight capacity cannot be negative");
+        }
+    }
+}
@@ -1,183 +1,286 @@
 package dev.peter.flightbooking.service;
 
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
+import dev.peter.flightbooking.cache.FlightCacheKeys;
+import dev.peter.flightbooking.cache.StaleCacheFallback;
+import dev.peter.flightbooking.config.FlightPaginationProperties;
+import dev.peter.flightbooking.dto.FlightPageResponseDto;
 import dev.peter.flightbooking.dto.FlightRequestDto;
 import dev.peter.flightbooking.dto.FlightResponseDto;
+import dev.peter.flightbooking.event.FlightChangedEvent;
 import dev.peter.flightbooking.model.Flight;
 import dev.peter.flightbooking.repository.FlightRepository;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 @Service
 @RequiredArgsConstructor
-@RateLimiter(name = "simpleRateLimit")
 public class FlightService {
 
     private final FlightRepository flightRepository;
 
-    private final CacheManager cacheManager;
+    private final StaleCacheFallback staleCacheFallback;
 
-    private List<Flight> filterAvailableFlights(List<Flight> flights) {
-        return flights.stream()
-                .filter(Flight::isAvailable).toList();
-    }
+    private final FlightCacheInvalidator flightCacheInvalidator;
 
-    //    @Cacheable(value = "flightStartLocation", key = "#startLocation")
-    private List<Flight> getAllFLightsByStartLocation(String startLocation) {
+    private final FlightPaginationProperties paginationProperties;
 
-        List<Flight> flights;
-        try {
-            flights = (List<Flight>) Objects.requireNonNull(cacheManager.getCache("flightStartLocation")).get(startLocation, List.class);
-            Objects.requireNonNull(flights);
-        } catch (NullPointerException e) {
-            flights = Collections.unmodifiableList(flightRepository.findByStartLocation(startLocation));
-            cacheManager.getCache("flightStartLocation").putIfAbsent(startLocation, flights);
+    private final ApplicationEventPublisher eventPublisher;
+
+    static FlightResponseDto mapToResponseDto(Flight flight) {
+        return new FlightResponseDto(
+                flight.getId(),
+                flight.getName(),
+                flight.getPrice(),
+                flight.getStartDate(),
+                flight.getEndDate(),
+                flight.getStartLocation(),
+                flight.getEndLocation(),
+                flight.isAvailable(),
+                flight.getCapacity(),
+                flight.getSeatsRemaining()
+        );
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (isNull(size)) {
+            return paginationProperties.defaultSize();
         }
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Page size must be positive"));
+        }
+        return Math.min(size, paginationProperties.maxSize());
+    }
 
-        if (flights.isEmpty()) {
+    // one extra row is fetched to know whether a next page exists without a count query
+    private static Pageable pageWithLookahead(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    // loaded pages are indexed by the route they list, so a change of a flight evicts only the pages of its routes
+    private StaleCacheFallback.Result<List<FlightResponseDto>> getCachedPage(String cacheName, String route, String key, Supplier<List<FlightResponseDto>> pageLoader) {
+        return staleCacheFallback.get(
+                cacheName,
+                key,
+                () -> Collections.unmodifiableList(pageLoader.get()),
+                flightCacheInvalidator.guard(cacheName, route, key)
+        );
+    }
+
+    private static FlightPageResponseDto mapToPageResponseDto(StaleCacheFallback.Result<List<FlightResponseDto>> result, int size) {
+        List<FlightResponseDto> flights = result.value();
+        boolean hasNextPage = flights.size() > size;
+        List<FlightResponseDto> page = hasNextPage ? flights.subList(0, size) : flights;
+        return new FlightPageResponseDto(
+                List.copyOf(page),
+                hasNextPage ? FlightCursor.of(page.get(page.size() - 1)).encode() : null,
+                result.isStale() ? result.staleness().toSeconds() : null
+        );
+    }
+
+    private StaleCacheFallback.Result<List<FlightResponseDto>> getFLightsPageByStartLocation(String startLocation, boolean filterUnavailable, FlightCursor cursor, String rawCursor, int size) {
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getCachedPage(
+                "flightStartLocation",
+                FlightCacheKeys.startLocationRoute(startLocation),
+                FlightCacheKeys.key(startLocation, filterUnavailable, rawCursor, size),
+                () -> flightRepository.findPageByStartLocation(
+                        startLocation,
+                        filterUnavailable,
+                        isNull(cursor) ? null : cursor.startDate(),
+                        isNull(cursor) ? null : cursor.id(),
+                        pageWithLookahead(size)
+                )
+        );
+
+        if (flights.value().isEmpty() && isNull(cursor)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights matching " + startLocation + " as start location"));
         }
         return flights;
     }
 
 //    @PreAuthorize("hasAuthority('SCOPE_user.read')")
-    public List<FlightResponseDto> getFLightsByStartLocation(String startLocation, boolean filterUnavailable) {
+    public FlightPageResponseDto getFLightsByStartLocation(String startLocation, boolean filterUnavailable, String cursor, Integer size) {
 
-        List<Flight> flights = getAllFLightsByStartLocation(startLocation);
+        int pageSize = resolvePageSize(size);
 
-        if (filterUnavailable) {
-            flights = filterAvailableFlights(flights);
-        }
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getFLightsPageByStartLocation(startLocation, filterUnavailable, FlightCursor.decode(cursor), cursor, pageSize);
 
-        return flights.stream()
-                .map(flight -> new FlightResponseDto(
-                        flight.getId(),
-                        flight.getName(),
-                        flight.getPrice(),
-                        flight.getStartDate(),
-                        flight.getEndDate(),
-                        flight.getStartLocation(),
-                        flight.getEndLocation(),
-                        flight.isAvailable()
-                )).collect(Collectors.toList());
+        return mapToPageResponseDto(flights, pageSize);
     }
 
-    //    @Cacheable(value = "flightEndLocation", key = "#endLocation")
-    private List<Flight> getAllFLightsByEndLocation(String endLocation) {
-
-        List<Flight> flights;
-        try {
-            flights = (List<Flight>) Objects.requireNonNull(cacheManager.getCache("flightEndLocation")).get(endLocation, List.class);
-            Objects.requireNonNull(flights);
-        } catch (NullPointerException e) {
-            flights = Collections.unmodifiableList(flightRepository.findByEndLocation(endLocation));
-            cacheManager.getCache("flightEndLocation").putIfAbsent(endLocation, flights);
-        }
+    private StaleCacheFallback.Result<List<FlightResponseDto>> getFLightsPageByEndLocation(String endLocation, boolean filterUnavailable, FlightCursor cursor, String rawCursor, int size) {
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getCachedPage(
+                "flightEndLocation",
+                FlightCacheKeys.endLocationRoute(endLocation),
+                FlightCacheKeys.key(endLocation, filterUnavailable, rawCursor, size),
+                () -> flightRepository.findPageByEndLocation(
+                        endLocation,
+                        filterUnavailable,
+                        isNull(cursor) ? null : cursor.startDate(),
+                        isNull(cursor) ? null : cursor.id(),
+                        pageWithLookahead(size)
+                )
+        );
 
-        if (flights.isEmpty()) {
+        if (flights.value().isEmpty() && isNull(cursor)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights matching " + endLocation + " as end location"));
         }
         return flights;
     }
 
 //    @PreAuthorize("hasAuthority('SCOPE_user.read')")
-    public List<FlightResponseDto> getFLightsByEndLocation(String endLocation, boolean filterUnavailable) {
+    public FlightPageResponseDto getFLightsByEndLocation(String endLocation, boolean filterUnavailable, String cursor, Integer size) {
+
+        int pageSize = resolvePageSize(size);
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getFLightsPageByEndLocation(endLocation, filterUnavailable, FlightCursor.decode(cursor), cursor, pageSize);
 
-        List<Flight> flights = getAllFLightsByEndLocation(endLocation);
+        return mapToPageResponseDto(flights, pageSize);
+    }
+
+    private StaleCacheFallback.Result<List<FlightResponseDto>> getFLightsPageByTimeFrame(String startDate, String endDate, boolean filterUnavailable, FlightCursor cursor, String rawCursor, int size) {
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getCachedPage(
+                "flightTimeFrame",
+                FlightCacheKeys.timeFrameRoute(startDate, endDate),
+                FlightCacheKeys.key(startDate, endDate, filterUnavailable, rawCursor, size),
+                () -> flightRepository.findPageByStartDateAndEndDate(
+                        startDate,
+                        endDate,
+                        filterUnavailable,
+                        isNull(cursor) ? null : cursor.startDate(),
+                        isNull(cursor) ? null : cursor.id(),
+                        pageWithLookahead(size)
+                )
+        );
 
-        if (filterUnavailable) {
-            flights = filterAvailableFlights(flights);
+        if (flights.value().isEmpty() && isNull(cursor)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights matching time frame " + startDate + " - " + endDate));
         }
+        return flights;
+    }
 
-        return flights.stream()
-                .map(flight -> new FlightResponseDto(
-                        flight.getId(),
-                        flight.getName(),
-                        flight.getPrice(),
-                        flight.getStartDate(),
-                        flight.getEndDate(),
-                        flight.getStartLocation(),
-                        flight.getEndLocation(),
-                        flight.isAvailable()
-                )).collect(Collectors.toList());
+//    @PreAuthorize("hasAuthority('SCOPE_user.read')")
+    public FlightPageResponseDto getFLightsByTimeFrame(String startDate, String endDate, boolean filterUnavailable, String cursor, Integer size) {
+
+        int pageSize = resolvePageSize(size);
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getFLightsPageByTimeFrame(startDate, endDate, filterUnavailable, FlightCursor.decode(cursor), cursor, pageSize);
+
+        return mapToPageResponseDto(flights, pageSize);
     }
 
-    //    @Cacheable(value = "flightTimeFrame", key = "{T(java.time.LocalDate).parse(#startDate), T(java.time.LocalDate).parse(#endDate)}")
-    private List<Flight> getAllFLightsByTimeFrame(String startDate, String endDate) {
+    private static String emptyToNull(String value) {
+        return isNull(value) || value.isBlank() ? null : value;
+    }
 
-        List<Flight> flights;
+    private static Timestamp parseStartOfDay(String date, long plusDays) {
+        if (isNull(date)) {
+            return null;
+        }
         try {
-            flights = (List<Flight>) Objects.requireNonNull(cacheManager.getCache("flightTimeFrame")).get(List.of(startDate, endDate), List.class);
-            Objects.requireNonNull(flights);
-        } catch (NullPointerException e) {
-            flights = Collections.unmodifiableList(flightRepository.findByStartDateAndEndDate(startDate, endDate));
-            cacheManager.getCache("flightTimeFrame").putIfAbsent(List.of(startDate, endDate), flights);
+            return Timestamp.valueOf(LocalDate.parse(date).plusDays(plusDays).atStartOfDay());
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Invalid date " + date + ", expected format yyyy-MM-dd"));
         }
+    }
 
-        if (flights.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights matching time frame " + startDate + " - " + endDate));
+    // a search only lists flights of its start or end location when it names one
+    private static String searchRoute(String startLocation, String endLocation) {
+        if (nonNull(startLocation)) {
+            return FlightCacheKeys.startLocationRoute(startLocation);
         }
-        return flights;
+        if (nonNull(endLocation)) {
+            return FlightCacheKeys.endLocationRoute(endLocation);
+        }
+        return FlightCacheKeys.ALL_FLIGHTS;
     }
 
-    //    @Cacheable(value = "flightTimeFrame", key = "{T(java.time.LocalDate).parse(#startDate), T(java.time.LocalDate).parse(#endDate)}")
-//    @PreAuthorize("hasAuthority('SCOPE_user.read')")
-    public List<FlightResponseDto> getFLightsByTimeFrame(String startDate, String endDate, boolean filterUnavailable) {
+    private StaleCacheFallback.Result<List<FlightResponseDto>> getFlightsPageBySearchCriteria(String startLocation, String endLocation, String startDate, String endDate, Double minPrice, Double maxPrice, boolean filterUnavailable, FlightCursor cursor, String rawCursor, int size) {
 
-        List<Flight> flights = getAllFLightsByTimeFrame(startDate, endDate);
+        if (isNull(startLocation) && isNull(endLocation) && isNull(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("At least one of start location, end location or start date is required"));
+        }
+        if (nonNull(minPrice) && nonNull(maxPrice) && minPrice > maxPrice) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Minimal price cannot be greater than maximal price"));
+        }
 
-        if (filterUnavailable) {
-            flights = filterAvailableFlights(flights);
+        Timestamp departureFrom = parseStartOfDay(startDate, 0);
+        Timestamp arrivalBefore = parseStartOfDay(endDate, 1);
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getCachedPage(
+                "flightSearch",
+                searchRoute(startLocation, endLocation),
+                FlightCacheKeys.key(startLocation, endLocation, startDate, endDate, minPrice, maxPrice, filterUnavailable, rawCursor, size),
+                () -> flightRepository.searchFlights(
+                        startLocation,
+                        endLocation,
+                        departureFrom,
+                        arrivalBefore,
+                        minPrice,
+                        maxPrice,
+                        filterUnavailable,
+                        isNull(cursor) ? null : cursor.startDate(),
+                        isNull(cursor) ? null : cursor.id(),
+                        pageWithLookahead(size)
+                )
+        );
+
+        if (flights.value().isEmpty() && isNull(cursor)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights matching given search criteria"));
         }
+        return flights;
+    }
+
+//    @PreAuthorize("hasAuthority('SCOPE_user.read')")
+    public FlightPageResponseDto searchFlights(String startLocation, String endLocation, String startDate, String endDate, Double minPrice, Double maxPrice, boolean filterUnavailable, String cursor, Integer size) {
+
+        int pageSize = resolvePageSize(size);
+
+        StaleCacheFallback.Result<List<FlightResponseDto>> flights = getFlightsPageBySearchCriteria(
+                emptyToNull(startLocation),
+                emptyToNull(endLocation),
+                emptyToNull(startDate),
+                emptyToNull(endDate),
+                minPrice,
+                maxPrice,
+                filterUnavailable,
+                FlightCursor.decode(cursor),
+                cursor,
+                pageSize
+        );
+
+        return mapToPageResponseDto(flights, pageSize);
+    }
 
-        return flights.stream()
-                .map(flight -> new FlightResponseDto(
-                        flight.getId(),
-                        flight.getName(),
-                        flight.getPrice(),
-                        flight.getStartDate(),
-                        flight.getEndDate(),
-                        flight.getStartLocation(),
-                        flight.getEndLocation(),
-                        flight.isAvailable()
-                )).collect(Collectors.toList());
-    }
-
-    @Caching(evict = {
-            @CacheEvict(value = "flightStartLocation", key = "{#flightRequestDto.startLocation}"),
-            @CacheEvict(value = "flightEndLocation", key = "{#flightRequestDto.endLocation}", condition = "#flightRequestDto.endLocation != null"),
-            @CacheEvict(value = "flightTimeFrame", key = "{" +
-                    "#flightRequestDto.startDate.toLocalDateTime().toLocalDate()," +
-                    "#flightRequestDto.endDate.toLocalDateTime().toLocalDate()" +
-                    "}")
-    }
-    )
     @Transactional
     @PreAuthorize("hasAuthority('SCOPE_user.write')")
     public FlightResponseDto createFlight(FlightRequestDto flightRequestDto) {
 
-        Flight flight = new Flight(
-                null,
-                flightRequestDto.name(),
-                flightRequestDto.price(),
-                flightRequestDto.startDate(),
-                flightRequestDto.endDate(),
-                flightRequestDto.startLocation(),
-                flightRequestDto.endLocation(),
-                flightRequestDto.isAvailable()
-        );
+        if (nonNull(flightRequestDto.capacity()) && flightRequestDto.capacity() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Flight capacity cannot be negative"));
+        }
+
+        Flight flight = Flight.fromDto(flightRequestDto);
 
         try {
             flightRepository.save(flight);
@@ -186,16 +289,9 @@ public class FlightService {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Something went wrong", new Throwable("Something went wrong while creating flight"));
         }
 
-        return new FlightResponseDto(
-                flight.getId(),
-                flight.getName(),
-                flight.getPrice(),
-                flight.getStartDate(),
-                flight.getEndDate(),
-                flight.getStartLocation(),
-                flight.getEndLocation(),
-                flight.isAvailable()
-        );
+        eventPublisher.publishEvent(FlightChangedEvent.saved(flight));
+
+        return mapToResponseDto(flight);
     }
 
     @Transactional
@@ -205,45 +301,27 @@ public class FlightService {
         Flight flight = flightRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found", new Throwable("Flight with id " + id + " does not exist")));
 
-        cacheManager.getCache("flightStartLocation").evictIfPresent(flight.getStartLocation());
-        cacheManager.getCache("flightEndLocation").evictIfPresent(flight.getEndLocation());
-        cacheManager.getCache("flightTimeFrame").evictIfPresent(List.of(
-                flight.getStartDate().toLocalDateTime().toLocalDate(),
-                flight.getEndDate().toLocalDateTime().toLocalDate()
-        ));
-
         flightRepository.delete(flight);
 
-    }
+        eventPublisher.publishEvent(FlightChangedEvent.deleted(flight));
 
-    @Caching(evict = {
-            @CacheEvict(value = "flightStartLocation", key = "{#flightRequestDto.startLocation}", condition = "#flightRequestDto.startLocation != null"),
-            @CacheEvict(value = "flightEndLocation", key = "{#flightRequestDto.endLocation}", condition = "#flightRequestDto.endLocation != null"),
-            @CacheEvict(value = "flightTimeFrame", key = "{" +
-                    "#flightRequestDto.startDate.toLocalDateTime().toLocalDate()," +
-                    "#flightRequestDto.endDate.toLocalDateTime().toLocalDate()" +
-                    "}")
     }
-    )
+
     @Transactional
     @PreAuthorize("hasAuthority('SCOPE_user.write')")
     public FlightResponseDto editFlight(Integer id, FlightRequestDto flightRequestDto) {
         Flight flight = flightRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found", new Throwable("Flight with id " + id + " does not exist")));
 
+        String previousStartLocation = flight.getStartLocation();
+        String previousEndLocation = flight.getEndLocation();
+
         flight.updateEntityFromDto(flightRequestDto);
 
         flightRepository.save(flight);
 
-        return new FlightResponseDto(
-                flight.getId(),
-                flight.getName(),
-                flight.getPrice(),
-                flight.getStartDate(),
-                flight.getEndDate(),
-                flight.getStartLocation(),
-                flight.getEndLocation(),
-                flight.isAvailable()
-        );
+        eventPublisher.publishEvent(FlightChangedEvent.edited(flight, previousStartLocation, previousEndLocation));
+
+        return mapToResponseDto(flight);
     }
 }
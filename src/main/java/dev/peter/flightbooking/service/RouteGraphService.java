@@ -0,0 +1,339 @@
+package dev.peter.flightbooking.service;
+
+import dev.peter.flightbooking.config.RouteGraphProperties;
+import dev.peter.flightbooking.dto.ConnectionResponseDto;
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import dev.peter.flightbooking.event.FlightChangedEvent;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+// route graph kept in memory: locations are nodes, flights are edges ordered by departure time
+@Service
+@RequiredArgsConstructor
+public class RouteGraphService {
+
+    public enum ConnectionSort {
+        CHEAPEST,
+        FASTEST
+    }
+
+    record Leg(Integer id, String name, Double price, Timestamp startDate, Timestamp endDate, String startLocation, String endLocation, boolean isAvailable) {
+
+        long departure() {
+            return startDate.getTime();
+        }
+
+        long arrival() {
+            return endDate.getTime();
+        }
+
+        static Optional<Leg> of(Flight flight) {
+            if (isNull(flight.getId()) || isNull(flight.getStartDate()) || isNull(flight.getEndDate())
+                    || isNull(flight.getStartLocation()) || isNull(flight.getEndLocation())
+                    || flight.getEndDate().before(flight.getStartDate())) {
+                return Optional.empty();
+            }
+            return Optional.of(new Leg(
+                    flight.getId(),
+                    flight.getName(),
+                    flight.getPrice(),
+                    flight.getStartDate(),
+                    flight.getEndDate(),
+                    flight.getStartLocation(),
+                    flight.getEndLocation(),
+                    flight.isAvailable()
+            ));
+        }
+
+        // bounds used to cut departure time windows out of the ordered edge sets
+        static Leg probe(long departure, int id) {
+            Timestamp timestamp = new Timestamp(departure);
+            return new Leg(id, null, null, timestamp, timestamp, null, null, false);
+        }
+    }
+
+    record Itinerary(List<Leg> legs, double totalPrice, long duration) {
+
+        static Itinerary of(List<Leg> legs) {
+            double totalPrice = legs.stream().mapToDouble(leg -> isNull(leg.price()) ? 0 : leg.price()).sum();
+            long duration = legs.get(legs.size() - 1).arrival() - legs.get(0).departure();
+            return new Itinerary(List.copyOf(legs), totalPrice, duration);
+        }
+    }
+
+    private static final Comparator<Leg> DEPARTURE_ORDER = Comparator.comparingLong(Leg::departure).thenComparing(Leg::id);
+
+    private static final Comparator<Itinerary> CHEAPEST_ORDER = Comparator.comparingDouble(Itinerary::totalPrice)
+            .thenComparingLong(Itinerary::duration)
+            .thenComparingInt(itinerary -> itinerary.legs().size());
+
+    private static final Comparator<Itinerary> FASTEST_ORDER = Comparator.comparingLong(Itinerary::duration)
+            .thenComparingDouble(Itinerary::totalPrice)
+            .thenComparingInt(itinerary -> itinerary.legs().size());
+
+    private static final Logger log = LoggerFactory.getLogger(RouteGraphService.class);
+
+    private final FlightRepository flightRepository;
+
+    private final RouteGraphProperties properties;
+
+    private final Object rebuildLock = new Object();
+
+    // replaced as a whole by rebuilds, so readers never see a partially built graph
+    private volatile RouteGraph graph = new RouteGraph();
+
+    // changes committed while a rebuild reads the flights, replayed on the new graph before it is swapped in
+    private List<FlightChangedEvent> changesDuringRebuild;
+
+    private static final class RouteGraph {
+
+        private final Map<String, NavigableSet<Leg>> departuresByLocation = new ConcurrentHashMap<>();
+
+        private final Map<Integer, Leg> legsById = new ConcurrentHashMap<>();
+
+        void apply(FlightChangedEvent event) {
+            if (event.isDeletion()) {
+                removeFlight(event.flightId());
+            } else {
+                addFlight(event.flight());
+            }
+        }
+
+        void addFlight(Flight flight) {
+            removeFlight(flight.getId());
+            Leg.of(flight).ifPresent(leg -> {
+                departuresByLocation
+                        .computeIfAbsent(leg.startLocation(), location -> new ConcurrentSkipListSet<>(DEPARTURE_ORDER))
+                        .add(leg);
+                legsById.put(leg.id(), leg);
+            });
+        }
+
+        void removeFlight(Integer id) {
+            Leg leg = legsById.remove(id);
+            if (isNull(leg)) {
+                return;
+            }
+            NavigableSet<Leg> departures = departuresByLocation.get(leg.startLocation());
+            if (nonNull(departures)) {
+                departures.remove(leg);
+                if (departures.isEmpty()) {
+                    departuresByLocation.remove(leg.startLocation());
+                }
+            }
+        }
+    }
+
+    // other instances only change the database, the periodic rebuild picks their changes up
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            fixedDelayString = "${app.flights.connections.rebuild-interval:PT5M}",
+            initialDelayString = "${app.flights.connections.rebuild-interval:PT5M}"
+    )
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            RouteGraph rebuilt = new RouteGraph();
+            try {
+                flightRepository.findAll().forEach(rebuilt::addFlight);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                changesDuringRebuild.forEach(rebuilt::apply);
+                changesDuringRebuild = null;
+                graph = rebuilt;
+            }
+            log.info("Route graph built with {} flights between {} locations", rebuilt.legsById.size(), rebuilt.departuresByLocation.size());
+        }
+    }
+
+    // applied only once the change is committed, so readers never see rolled back flights
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        graph.apply(event);
+        if (nonNull(changesDuringRebuild)) {
+            changesDuringRebuild.add(event);
+        }
+    }
+
+    private static NavigableSet<Leg> departuresBetween(NavigableSet<Leg> departures, long from, long to) {
+        return departures.subSet(Leg.probe(from, Integer.MIN_VALUE), true, Leg.probe(to, Integer.MAX_VALUE), true);
+    }
+
+    private static FlightResponseDto mapToResponseDto(Leg leg) {
+        return new FlightResponseDto(
+                leg.id(),
+                leg.name(),
+                leg.price(),
+                leg.startDate(),
+                leg.endDate(),
+                leg.startLocation(),
+                leg.endLocation(),
+                leg.isAvailable()
+        );
+    }
+
+    private static ConnectionResponseDto mapToResponseDto(Itinerary itinerary) {
+        return new ConnectionResponseDto(
+                itinerary.legs().stream().map(RouteGraphService::mapToResponseDto).toList(),
+                itinerary.totalPrice(),
+                Duration.ofMillis(itinerary.duration()).toMinutes()
+        );
+    }
+
+    private static long[] parseDay(String date) {
+        try {
+            LocalDate day = LocalDate.parse(date);
+            return new long[]{
+                    Timestamp.valueOf(day.atStartOfDay()).getTime(),
+                    Timestamp.valueOf(day.plusDays(1).atStartOfDay()).getTime() - 1
+            };
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Invalid date " + date + ", expected format yyyy-MM-dd"));
+        }
+    }
+
+    private static class Search {
+        private final String endLocation;
+        private final long minLayover;
+        private final long maxLayover;
+        private final int maxLegs;
+        private final boolean filterUnavailable;
+        private final int limit;
+        private final Comparator<Itinerary> order;
+        // worst of the best itineraries found so far sits on top
+        private final PriorityQueue<Itinerary> best;
+        private final Deque<Leg> path = new ArrayDeque<>();
+        private final Set<String> visited = new HashSet<>();
+
+        private Search(String endLocation, long minLayover, long maxLayover, int maxLegs, boolean filterUnavailable, int limit, Comparator<Itinerary> order) {
+            this.endLocation = endLocation;
+            this.minLayover = minLayover;
+            this.maxLayover = maxLayover;
+            this.maxLegs = maxLegs;
+            this.filterUnavailable = filterUnavailable;
+            this.limit = limit;
+            this.order = order;
+            this.best = new PriorityQueue<>(order.reversed());
+        }
+
+        // prices and durations only grow along a path, so a partial path worse than the current worst result is dropped
+        private boolean canImprove(double price, long duration) {
+            if (best.size() < limit) {
+                return true;
+            }
+            Itinerary worst = best.peek();
+            return order == CHEAPEST_ORDER ? price <= worst.totalPrice() : duration <= worst.duration();
+        }
+
+        private void visit(Map<String, NavigableSet<Leg>> departuresByLocation, Leg leg, double price) {
+            if (filterUnavailable && !leg.isAvailable()) {
+                return;
+            }
+            double totalPrice = price + (isNull(leg.price()) ? 0 : leg.price());
+            long duration = leg.arrival() - (path.isEmpty() ? leg.departure() : path.peekFirst().departure());
+            if (!canImprove(totalPrice, duration)) {
+                return;
+            }
+
+            path.addLast(leg);
+            visited.add(leg.endLocation());
+
+            if (leg.endLocation().equals(endLocation)) {
+                best.offer(Itinerary.of(new ArrayList<>(path)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            } else if (path.size() < maxLegs) {
+                NavigableSet<Leg> departures = departuresByLocation.get(leg.endLocation());
+                if (nonNull(departures)) {
+                    for (Leg next : departuresBetween(departures, leg.arrival() + minLayover, leg.arrival() + maxLayover)) {
+                        if (!visited.contains(next.endLocation())) {
+                            visit(departuresByLocation, next, totalPrice);
+                        }
+                    }
+                }
+            }
+
+            visited.remove(leg.endLocation());
+            path.removeLast();
+        }
+
+        private List<Itinerary> results() {
+            return best.stream().sorted(order).toList();
+        }
+    }
+
+    public List<ConnectionResponseDto> findConnections(String startLocation, String endLocation, String startDate, Integer minLayover, Integer maxLegs, ConnectionSort sort, boolean filterUnavailable) {
+
+        if (Objects.equals(startLocation, endLocation)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Start and end location must differ"));
+        }
+        if (nonNull(minLayover) && minLayover < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Minimal layover cannot be negative"));
+        }
+        if (nonNull(maxLegs) && maxLegs < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad Request", new Throwable("Maximal number of legs must be positive"));
+        }
+
+        long minLayoverMillis = isNull(minLayover) ? properties.defaultMinLayover().toMillis() : Duration.ofMinutes(minLayover).toMillis();
+        long maxLayoverMillis = Math.max(minLayoverMillis, properties.maxLayover().toMillis());
+        int legs = isNull(maxLegs) ? properties.maxLegs() : Math.min(maxLegs, properties.maxLegs());
+        long[] departureWindow = isNull(startDate) || startDate.isBlank()
+                ? new long[]{System.currentTimeMillis(), Long.MAX_VALUE - 1}
+                : parseDay(startDate);
+
+        Search search = new Search(
+                endLocation,
+                minLayoverMillis,
+                maxLayoverMillis,
+                legs,
+                filterUnavailable,
+                properties.maxResults(),
+                sort == ConnectionSort.FASTEST ? FASTEST_ORDER : CHEAPEST_ORDER
+        );
+        search.visited.add(startLocation);
+
+        // one snapshot for the whole search, a concurrent rebuild swaps in a new graph instead of changing this one
+        Map<String, NavigableSet<Leg>> departuresByLocation = graph.departuresByLocation;
+        NavigableSet<Leg> departures = departuresByLocation.get(startLocation);
+        if (nonNull(departures)) {
+            for (Leg leg : departuresBetween(departures, departureWindow[0], departureWindow[1])) {
+                search.visit(departuresByLocation, leg, 0);
+            }
+        }
+
+        List<Itinerary> itineraries = search.results();
+        if (itineraries.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Connections not found", new Throwable("Could not find connections from " + startLocation + " to " + endLocation));
+        }
+        return itineraries.stream().map(RouteGraphService::mapToResponseDto).toList();
+    }
+}
@@ -0,0 +1,213 @@
+package dev.peter.flightbooking.service;
+
+import dev.peter.flightbooking.config.SeatHoldProperties;
+import dev.peter.flightbooking.dto.CustomerBookingRequestDto;
+import dev.peter.flightbooking.dto.CustomerBookingResponseDto;
+import dev.peter.flightbooking.dto.SeatHoldResponseDto;
+import dev.peter.flightbooking.error.RetryableResponseStatusException;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.CustomerRepository;
+import dev.peter.flightbooking.repository.FlightRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static java.util.Objects.isNull;
+
+// seats are held in redis while the customer checks out, mysql stays the source of truth on confirmation
+@Service
+@RequiredArgsConstructor
+public class SeatHoldService {
+
+    // KEYS[1] holds of the flight (member: hold id, score: expiry), KEYS[2] hold details, KEYS[3] seat version of the flight
+    // ARGV: now, expires at, seats remaining (-1 when unlimited), hold id, customer id, flight id, ttl millis, seat version
+    // returns {held, number of expired holds purged}, held is -1 when a booking was confirmed after the seats were read.
+    // the set outlives its last hold so expired holds are still counted, a short booking hold never shortens its expiry
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> HOLD_SCRIPT = RedisScript.of("""
+            local purged = redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1])
+            if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[8] then
+                return {-1, purged}
+            end
+            local seats = tonumber(ARGV[3])
+            if seats >= 0 and redis.call('ZCARD', KEYS[1]) >= seats then
+                return {0, purged}
+            end
+            redis.call('ZADD', KEYS[1], ARGV[2], ARGV[4])
+            local holdsTtl = tonumber(ARGV[7]) * 2
+            if redis.call('PTTL', KEYS[1]) < holdsTtl then
+                redis.call('PEXPIRE', KEYS[1], holdsTtl)
+            end
+            redis.call('HSET', KEYS[2], 'customerId', ARGV[5], 'flightId', ARGV[6])
+            redis.call('PEXPIRE', KEYS[2], ARGV[7])
+            return {1, purged}
+            """, List.class);
+
+    // ARGV: hold id, 1 when the hold was booked, version ttl millis.
+    // a booked hold bumps the seat version, holds that read the seat count before the booking committed retry
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            local removed = redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('DEL', KEYS[2])
+            if ARGV[2] == '1' then
+                redis.call('INCR', KEYS[3])
+                redis.call('PEXPIRE', KEYS[3], ARGV[3])
+            end
+            return removed
+            """, Long.class);
+
+    private static final String HOLDS_KEY_PREFIX = "flightbooking:holds:";
+
+    private static final String HOLD_KEY_PREFIX = "flightbooking:hold:";
+
+    private static final String SEAT_VERSION_KEY_PREFIX = "flightbooking:seat-version:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final CustomerRepository customerRepository;
+
+    private final FlightRepository flightRepository;
+
+    private final CustomerService customerService;
+
+    private final SeatHoldProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private void count(String result, long amount) {
+        meterRegistry.counter("flight.seat.holds", "result", result).increment(amount);
+    }
+
+    private static String holdsKey(Integer flightId) {
+        return HOLDS_KEY_PREFIX + flightId;
+    }
+
+    private static String holdKey(String holdId) {
+        return HOLD_KEY_PREFIX + holdId;
+    }
+
+    private static String seatVersionKey(Integer flightId) {
+        return SEAT_VERSION_KEY_PREFIX + flightId;
+    }
+
+    private SeatHoldResponseDto hold(Integer id, Integer flightId, Duration ttl) {
+        if (!customerRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer not found", new Throwable("Customer with id " + id + " does not exist"));
+        }
+
+        for (int attempt = 0; attempt < properties.maxAttempts(); attempt++) {
+            // read before the seat count, a booking committed in between changes it and the script refuses the stale count
+            String seatVersion = Objects.requireNonNullElse(redisTemplate.opsForValue().get(seatVersionKey(flightId)), "0");
+            Flight flight = flightRepository.findCurrentById(flightId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found", new Throwable("Could not find flights with id " + flightId)));
+
+            String holdId = UUID.randomUUID().toString();
+            long now = System.currentTimeMillis();
+            long expiresAt = now + ttl.toMillis();
+            int seatsRemaining = isNull(flight.getCapacity()) ? -1 : Objects.requireNonNullElse(flight.getSeatsRemaining(), 0);
+
+            List<Long> result = redisTemplate.execute(
+                    HOLD_SCRIPT,
+                    List.of(holdsKey(flightId), holdKey(holdId), seatVersionKey(flightId)),
+                    String.valueOf(now),
+                    String.valueOf(expiresAt),
+                    String.valueOf(seatsRemaining),
+                    holdId,
+                    String.valueOf(id),
+                    String.valueOf(flightId),
+                    String.valueOf(ttl.toMillis()),
+                    seatVersion
+            );
+
+            count("expired", result.get(1));
+            if (result.get(0) == 1) {
+                count("created", 1);
+                return new SeatHoldResponseDto(holdId, flightId, new Timestamp(expiresAt));
+            }
+            if (result.get(0) == 0) {
+                count("rejected", 1);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Flight sold out", new Throwable("No seats available to hold on flight with id " + flightId));
+            }
+        }
+        count("contended", 1);
+        throw new RetryableResponseStatusException(
+                HttpStatus.CONFLICT,
+                "Seats changed",
+                new Throwable("Seats of flight with id " + flightId + " kept changing while holding one"),
+                Duration.ofSeconds(1)
+        );
+    }
+
+    @PreAuthorize("hasAuthority('SCOPE_user.write')")
+    public SeatHoldResponseDto holdSeat(Integer id, CustomerBookingRequestDto holdRequest) {
+        return hold(id, holdRequest.flightId(), properties.ttl());
+    }
+
+    // a direct booking holds its seat for the duration of the booking, so it never takes a seat someone else holds
+    @PreAuthorize("hasAuthority('SCOPE_user.write')")
+    public CustomerBookingResponseDto bookSeat(Integer id, CustomerBookingRequestDto bookingRequest) {
+        // booking a flight again takes no seat, and seats of flights without capacity never run out,
+        // so neither needs a hold or a seat version bump. unknown flights are rejected by the booking itself
+        Integer flightId = bookingRequest.flightId();
+        if (customerRepository.countBooking(id, flightId) > 0
+                || flightRepository.findById(flightId).map(Flight::getCapacity).isEmpty()) {
+            return customerService.bookCustomerFlight(id, bookingRequest);
+        }
+        SeatHoldResponseDto hold = hold(id, bookingRequest.flightId(), properties.bookingTtl());
+        try {
+            return customerService.bookCustomerFlight(id, bookingRequest);
+        } finally {
+            release(hold.flightId(), hold.holdId(), true);
+        }
+    }
+
+    private Integer getHeldFlightId(Integer id, String holdId) {
+        Map<Object, Object> hold = redisTemplate.opsForHash().entries(holdKey(holdId));
+        if (hold.isEmpty() || !String.valueOf(id).equals(hold.get("customerId"))) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Seat hold not found", new Throwable("Seat hold " + holdId + " does not exist or has expired"));
+        }
+        return Integer.valueOf((String) hold.get("flightId"));
+    }
+
+    private void release(Integer flightId, String holdId, boolean booked) {
+        redisTemplate.execute(
+                RELEASE_SCRIPT,
+                List.of(holdsKey(flightId), holdKey(holdId), seatVersionKey(flightId)),
+                holdId,
+                booked ? "1" : "0",
+                String.valueOf(properties.ttl().toMillis() * 2)
+        );
+    }
+
+    @PreAuthorize("hasAuthority('SCOPE_user.write')")
+    public CustomerBookingResponseDto confirmSeatHold(Integer id, String holdId) {
+        Integer flightId = getHeldFlightId(id, holdId);
+
+        // the seat is taken in mysql before the hold disappears, so availability is never overstated
+        try {
+            CustomerBookingResponseDto booking = customerService.bookCustomerFlight(id, new CustomerBookingRequestDto(flightId));
+            count("confirmed", 1);
+            return booking;
+        } finally {
+            release(flightId, holdId, true);
+        }
+    }
+
+    @PreAuthorize("hasAuthority('SCOPE_user.write')")
+    public void releaseSeatHold(Integer id, String holdId) {
+        Integer flightId = getHeldFlightId(id, holdId);
+        release(flightId, holdId, false);
+        count("released", 1);
+    }
+}
@@ -0,0 +1,5 @@
+CREATE INDEX idx_flight_start_location_start_date ON flight (start_location, start_date);
+
+CREATE INDEX idx_flight_end_location_start_date ON flight (end_location, start_date);
+
+CREATE INDEX idx_flight_start_date_end_date ON flight (start_date, end_date);
@@ -0,0 +1,3 @@
+alter table flight add column capacity int null;
+alter table flight add column seats_remaining int null;
+alter table flight add constraint chk_flight_seats_remaining check (seats_remaining >= 0 and seats_remaining <= capacity);
@@ -0,0 +1,4 @@
+create table flight_seq (next_val bigint);
+
+-- pooled allocation may hand out the block below the stored value, so start one block above existing ids
+insert into flight_seq select coalesce(max(id), 0) + 51 from flight;
@@ -0,0 +1,85 @@
+package dev.peter.flightbooking.benchmark;
+
+import dev.peter.flightbooking.cache.FlightCacheSerializer;
+import dev.peter.flightbooking.cache.TimestampedValue;
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// ser/deser cost of one cached flight page per serializer, entry sizes are printed during setup.
+// run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=dev.peter.flightbooking.benchmark.FlightCacheSerializerBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightCacheSerializerBenchmark {
+
+    @Param({"10", "50", "500"})
+    private int flights;
+
+    @Param({"json", "binary", "binary-compressed"})
+    private String serializer;
+
+    private RedisSerializer<Object> redisSerializer;
+
+    private TimestampedValue value;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        redisSerializer = switch (serializer) {
+            case "json" -> jsonSerializer;
+            case "binary" -> new FlightCacheSerializer(jsonSerializer, Integer.MAX_VALUE);
+            default -> new FlightCacheSerializer(jsonSerializer, 1024);
+        };
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        value = new TimestampedValue(Collections.unmodifiableList(IntStream.range(0, flights)
+                .mapToObj(i -> new FlightResponseDto(i + 1, "Flight" + i, 100.0 + i, date, date, "Location" + i % 20, "Location" + (i + 1) % 20, true, 180, 180 - i % 180))
+                .toList()), System.currentTimeMillis());
+        bytes = redisSerializer.serialize(value);
+        System.out.printf("%n%s, %d flights: %d bytes per entry%n", serializer, flights, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FlightCacheSerializerBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
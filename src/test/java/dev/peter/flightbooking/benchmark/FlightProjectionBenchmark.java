@@ -0,0 +1,130 @@
+package dev.peter.flightbooking.benchmark;
+
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// one flight page read as managed entities and copied into dtos, against the same page projected into dtos by the query.
+// gc.alloc.rate.norm is the allocation per page.
+// run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=dev.peter.flightbooking.benchmark.FlightProjectionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightProjectionBenchmark {
+
+    @Param({"100", "1000"})
+    private int rows;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+
+    private EntityManager entityManager;
+
+    private FlightRepository flightRepository;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE;MODE=MySQL");
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan("dev.peter.flightbooking.model");
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        flightRepository = new JpaRepositoryFactory(entityManager).getRepository(FlightRepository.class);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> flightRepository.saveAll(IntStream.range(0, rows)
+                .mapToObj(i -> new Flight(null, "Flight" + i, 100.0 + i, date, date, "Location1", "Location" + i % 20, true, 180, 180 - i % 180))
+                .toList()));
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactoryBean.destroy();
+    }
+
+    // the page query as it was before the projection
+    @Benchmark
+    public List<FlightResponseDto> entities() {
+        return readOnlyTransaction.execute(status -> entityManager
+                .createQuery("SELECT f FROM Flight f WHERE f.startLocation = :startLocation ORDER BY f.startDate, f.id", Flight.class)
+                .setParameter("startLocation", "Location1")
+                .setMaxResults(rows)
+                .getResultList()
+                .stream()
+                .map(flight -> new FlightResponseDto(
+                        flight.getId(),
+                        flight.getName(),
+                        flight.getPrice(),
+                        flight.getStartDate(),
+                        flight.getEndDate(),
+                        flight.getStartLocation(),
+                        flight.getEndLocation(),
+                        flight.isAvailable(),
+                        flight.getCapacity(),
+                        flight.getSeatsRemaining()
+                ))
+                .toList());
+    }
+
+    @Benchmark
+    public List<FlightResponseDto> projection() {
+        return readOnlyTransaction.execute(status -> flightRepository.findPageByStartLocation("Location1", false, null, null, PageRequest.of(0, rows)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FlightProjectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
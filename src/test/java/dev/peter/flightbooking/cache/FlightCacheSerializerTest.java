@@ -0,0 +1,104 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightCacheSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private final FlightCacheSerializer serializer = new FlightCacheSerializer(jsonSerializer, 1024);
+
+    private static List<FlightResponseDto> flights(int count) {
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        return Collections.unmodifiableList(IntStream.range(0, count)
+                .mapToObj(i -> new FlightResponseDto(i + 1, "Flight" + i, 10.5 + i, date, i % 2 == 0 ? date : null, "Location1", i % 2 == 0 ? "Location2" : null, i % 3 == 0, i % 2 == 0 ? 100 : null, i % 2 == 0 ? 50 : null))
+                .toList());
+    }
+
+    @Test
+    void givenTimestampedFlights_whenSerializeAndDeserialize_thenRestoreEveryField() {
+        // given
+        List<FlightResponseDto> flights = flights(3);
+        TimestampedValue value = new TimestampedValue(flights, 1234L);
+
+        // when
+        TimestampedValue restored = (TimestampedValue) serializer.deserialize(serializer.serialize(value));
+
+        // then
+        assertThat(restored.storedAt()).isEqualTo(1234L);
+        assertThat((List<FlightResponseDto>) restored.value())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(flights);
+    }
+
+    @Test
+    void givenLargeList_whenSerialize_thenCompressAndStaySmallerThanJson() {
+        // given
+        List<FlightResponseDto> flights = flights(200);
+
+        // when
+        byte[] bytes = serializer.serialize(flights);
+
+        // then
+        assertThat(bytes[0]).isEqualTo(FlightCacheSerializer.VERSION);
+        assertThat(bytes[1]).isEqualTo(FlightCacheSerializer.FLAG_COMPRESSED);
+        assertThat(bytes.length).isLessThan(jsonSerializer.serialize(flights).length / 4);
+        assertThat((List<FlightResponseDto>) serializer.deserialize(bytes))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(flights);
+    }
+
+    @Test
+    void givenSmallList_whenSerialize_thenDoNotCompress() {
+        // given
+        // when
+        byte[] bytes = serializer.serialize(flights(1));
+
+        // then
+        assertThat(bytes[1]).isZero();
+    }
+
+    @Test
+    void givenJsonWrittenBeforeBinaryFormat_whenDeserialize_thenReadIt() {
+        // given
+        byte[] json = jsonSerializer.serialize(new TimestampedValue(new ArrayList<>(List.of("Flight1")), 1234L));
+
+        // when
+        Object value = serializer.deserialize(json);
+
+        // then
+        assertThat(value).isEqualTo(new TimestampedValue(List.of("Flight1"), 1234L));
+    }
+
+    @Test
+    void givenOtherValue_whenSerializeAndDeserialize_thenDelegateToJson() {
+        // given
+        // when
+        Object value = serializer.deserialize(serializer.serialize(new ArrayList<>(List.of("Location1", "Location2"))));
+
+        // then
+        assertThat(value).isEqualTo(List.of("Location1", "Location2"));
+    }
+
+    @Test
+    void givenUnknownVersion_whenDeserialize_thenTreatAsMiss() {
+        // given
+        byte[] bytes = serializer.serialize(flights(1));
+        bytes[0] = FlightCacheSerializer.VERSION + 1;
+
+        // when
+        // then
+        assertThat(serializer.deserialize(bytes)).isNull();
+    }
+}
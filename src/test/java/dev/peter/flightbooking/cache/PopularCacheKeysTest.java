@@ -0,0 +1,31 @@
+package dev.peter.flightbooking.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularCacheKeysTest {
+
+    @Test
+    void givenArgsContainingSeparatorAndEscape_whenEncodeAndDecodeMember_thenReturnSameArgs() {
+        // given
+        String[] args = {"Location|1", "back\\slash", "", "true"};
+
+        // when
+        String member = PopularCacheKeys.member(args);
+
+        // then
+        assertThat(PopularCacheKeys.args(member)).containsExactly(args);
+    }
+
+    @Test
+    void givenMemberWithoutEscapes_whenDecodeMember_thenSplitOnSeparator() {
+        // when
+        List<String> args = PopularCacheKeys.args("Location1|false|");
+
+        // then
+        assertThat(args).containsExactly("Location1", "false", "");
+    }
+}
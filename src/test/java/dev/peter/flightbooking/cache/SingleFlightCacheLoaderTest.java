@@ -0,0 +1,201 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.config.CacheTtlProperties;
+import dev.peter.flightbooking.config.RefreshAheadProperties;
+import dev.peter.flightbooking.config.SingleFlightProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightCacheLoaderTest {
+
+    private static final String CACHE_NAME = "flightStartLocation";
+
+    private SingleFlightCacheLoader cacheLoader;
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        meterRegistry = new SimpleMeterRegistry();
+        cacheLoader = new SingleFlightCacheLoader(cacheManager, CacheLease.LOCAL, new SingleFlightProperties(Duration.ofSeconds(10), Duration.ofMillis(10)), new CacheTtlProperties(Duration.ofMinutes(60), Map.of()), new RefreshAheadProperties(false, 0.2, 3), meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("flight.cache.requests", "cache", CACHE_NAME, "result", result).count();
+    }
+
+    @Test
+    void givenConcurrentMisses_whenGet_thenLoadOnce() throws Exception {
+        // given
+        int callers = 50;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        List<Object> key = List.of("Location1", false, "", 50);
+        List<Future<List<String>>> results = new ArrayList<>();
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            results.add(executor.submit(() -> cacheLoader.get(CACHE_NAME, key, () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                try {
+                    releaseLoader.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of("Flight1");
+            })));
+            loaderStarted.await(5, TimeUnit.SECONDS);
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> cacheLoader.get(CACHE_NAME, key, () -> {
+                    loads.incrementAndGet();
+                    return List.of("Flight1");
+                })));
+            }
+            // let followers reach the shared future before the load completes
+            Thread.sleep(200);
+            releaseLoader.countDown();
+            for (Future<List<String>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly("Flight1");
+            }
+        }
+        // then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(count("coalesced")).isEqualTo(callers - 1);
+    }
+
+    @Test
+    void givenCachedValue_whenGet_thenSkipLoaderAndCountHit() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        cacheManager.getCache(CACHE_NAME).put(key, List.of("Flight1"));
+        // when
+        List<String> value = cacheLoader.get(CACHE_NAME, key, () -> {
+            throw new IllegalStateException("should not load");
+        });
+        // then
+        assertThat(value).containsExactly("Flight1");
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void givenLeaseHeldElsewhere_whenValueAppears_thenReturnItWithoutLoading() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        CacheLease busyLease = new CacheLease() {
+            @Override
+            public String tryAcquire(String leaseKey, Duration ttl) {
+                // the other instance finishes its load while this one waits
+                cacheManager.getCache(CACHE_NAME).put(key, List.of("Flight2"));
+                return null;
+            }
+
+            @Override
+            public void release(String leaseKey, String token) {
+            }
+        };
+        cacheLoader = new SingleFlightCacheLoader(cacheManager, busyLease, new SingleFlightProperties(Duration.ofSeconds(10), Duration.ofMillis(10)), new CacheTtlProperties(Duration.ofMinutes(60), Map.of()), new RefreshAheadProperties(false, 0.2, 3), meterRegistry);
+        // when
+        List<String> value = cacheLoader.get(CACHE_NAME, key, () -> List.of("Flight1"));
+        // then
+        assertThat(value).containsExactly("Flight2");
+    }
+
+    @Test
+    void givenFailingLoader_whenGet_thenPropagateExceptionAndCacheNothing() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        // when
+        // then
+        assertThatThrownBy(() -> cacheLoader.get(CACHE_NAME, key, () -> {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
+        }))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(cacheManager.getCache(CACHE_NAME).get(key)).isNull();
+    }
+
+    @Test
+    void givenGuardEvictingRacedLoad_whenGet_thenStartGuardBeforeLoadAndCheckAfterPut() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        List<String> steps = new ArrayList<>();
+        LoadGuard guard = () -> {
+            steps.add("start");
+            return () -> {
+                steps.add(cacheManager.getCache(CACHE_NAME).get(key) != null ? "check stored" : "check missing");
+                cacheManager.getCache(CACHE_NAME).evict(key);
+            };
+        };
+
+        // when
+        List<String> value = cacheLoader.get(CACHE_NAME, key, () -> {
+            steps.add("load");
+            return List.of("Flight1");
+        }, guard);
+
+        // then
+        assertThat(value).containsExactly("Flight1");
+        assertThat(steps).containsExactly("start", "load", "check stored");
+        assertThat(cacheManager.getCache(CACHE_NAME).get(key)).isNull();
+    }
+
+    @Test
+    void givenHotKeyNearExpiry_whenGet_thenRefreshInBackgroundAndServeCachedValue() throws InterruptedException {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        long loadedBeforeWindow = System.currentTimeMillis() - Duration.ofMinutes(55).toMillis();
+        cacheManager.getCache(CACHE_NAME).put(key, new TimestampedValue(List.of("Flight1"), loadedBeforeWindow));
+        cacheLoader = new SingleFlightCacheLoader(cacheManager, CacheLease.LOCAL, new SingleFlightProperties(Duration.ofSeconds(10), Duration.ofMillis(10)), new CacheTtlProperties(Duration.ofMinutes(60), Map.of()), new RefreshAheadProperties(true, 0.2, 2), meterRegistry);
+        // when
+        List<String> first = cacheLoader.get(CACHE_NAME, key, () -> List.of("Flight2"));
+        List<String> second = cacheLoader.get(CACHE_NAME, key, () -> List.of("Flight2"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (count("refreshed") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // then
+        assertThat(first).containsExactly("Flight1");
+        assertThat(second).containsExactly("Flight1");
+        assertThat(count("refreshed")).isEqualTo(1);
+        assertThat(((TimestampedValue) cacheManager.getCache(CACHE_NAME).get(key).get()).value()).isEqualTo(List.of("Flight2"));
+        assertThat(count("miss")).isZero();
+    }
+
+    @Test
+    void givenColdKeyNearExpiry_whenGet_thenDoNotRefresh() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        long loadedBeforeWindow = System.currentTimeMillis() - Duration.ofMinutes(55).toMillis();
+        cacheManager.getCache(CACHE_NAME).put(key, new TimestampedValue(List.of("Flight1"), loadedBeforeWindow));
+        cacheLoader = new SingleFlightCacheLoader(cacheManager, CacheLease.LOCAL, new SingleFlightProperties(Duration.ofSeconds(10), Duration.ofMillis(10)), new CacheTtlProperties(Duration.ofMinutes(60), Map.of()), new RefreshAheadProperties(true, 0.2, 2), meterRegistry);
+        // when
+        List<String> value = cacheLoader.get(CACHE_NAME, key, () -> {
+            throw new IllegalStateException("should not load");
+        });
+        // then
+        assertThat(value).containsExactly("Flight1");
+        assertThat(count("refreshed")).isZero();
+    }
+}
@@ -0,0 +1,128 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.config.CacheTtlProperties;
+import dev.peter.flightbooking.config.RefreshAheadProperties;
+import dev.peter.flightbooking.config.SingleFlightProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StaleCacheFallbackTest {
+
+    private static final String CACHE_NAME = "flightStartLocation";
+
+    private static final List<Object> KEY = List.of("Location1", false, "", 50);
+
+    private StaleCacheFallback staleCacheFallback;
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        staleCacheFallback = new StaleCacheFallback(
+                cacheManager,
+                new SingleFlightCacheLoader(cacheManager, CacheLease.LOCAL, new SingleFlightProperties(Duration.ofSeconds(10), Duration.ofMillis(10)), new CacheTtlProperties(Duration.ofMinutes(60), Map.of()), new RefreshAheadProperties(false, 0.2, 3), meterRegistry),
+                circuitBreakerRegistry,
+                meterRegistry
+        );
+    }
+
+    private void evictFresh() {
+        Objects.requireNonNull(cacheManager.getCache(CACHE_NAME)).clear();
+    }
+
+    @Test
+    void givenDatabaseAvailable_whenGet_thenReturnFreshValue() {
+        // given
+        // when
+        StaleCacheFallback.Result<List<String>> result = staleCacheFallback.get(CACHE_NAME, KEY, () -> List.of("Flight1"));
+
+        // then
+        assertThat(result.value()).containsExactly("Flight1");
+        assertThat(result.isStale()).isFalse();
+        assertThat(cacheManager.getCache(StaleCacheFallback.staleCacheName(CACHE_NAME)).get(KEY)).isNotNull();
+    }
+
+    @Test
+    void givenEvictedEntryAndDatabaseDown_whenGet_thenReturnStaleCopy() {
+        // given
+        staleCacheFallback.get(CACHE_NAME, KEY, () -> List.of("Flight1"));
+        evictFresh();
+
+        // when
+        StaleCacheFallback.Result<List<String>> result = staleCacheFallback.get(CACHE_NAME, KEY, () -> {
+            throw new DataAccessResourceFailureException("Connection refused");
+        });
+
+        // then
+        assertThat(result.value()).containsExactly("Flight1");
+        assertThat(result.isStale()).isTrue();
+        assertThat(meterRegistry.counter("flight.cache.stale", "cache", CACHE_NAME, "result", "served").count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenNoStaleCopyAndDatabaseDown_whenGet_thenRethrow() {
+        // given
+        // when
+        // then
+        assertThatThrownBy(() -> staleCacheFallback.get(CACHE_NAME, KEY, () -> {
+            throw new DataAccessResourceFailureException("Connection refused");
+        }))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    void givenStaleCopyAndNotFoundError_whenGet_thenRethrow() {
+        // given
+        staleCacheFallback.get(CACHE_NAME, KEY, () -> List.of("Flight1"));
+        evictFresh();
+
+        // when
+        // then
+        assertThatThrownBy(() -> staleCacheFallback.get(CACHE_NAME, KEY, () -> {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void givenOpenCircuit_whenGet_thenServeStaleCopyWithoutLoading() {
+        // given
+        staleCacheFallback.get(CACHE_NAME, KEY, () -> List.of("Flight1"));
+        evictFresh();
+        circuitBreakerRegistry.circuitBreaker(StaleCacheFallback.CIRCUIT_BREAKER_NAME).transitionToOpenState();
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        StaleCacheFallback.Result<List<String>> result = staleCacheFallback.get(CACHE_NAME, KEY, () -> {
+            loads.incrementAndGet();
+            return List.of("Flight2");
+        });
+
+        // then
+        assertThat(result.value()).containsExactly("Flight1");
+        assertThat(result.isStale()).isTrue();
+        assertThat(loads.get()).isZero();
+    }
+}
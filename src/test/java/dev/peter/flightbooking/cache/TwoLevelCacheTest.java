@@ -0,0 +1,115 @@
+package dev.peter.flightbooking.cache;
+
+import dev.peter.flightbooking.config.TwoLevelCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TwoLevelCacheTest {
+
+    private static final String CACHE_NAME = "flightStartLocation";
+
+    private TwoLevelCacheManager cacheManager;
+
+    private ConcurrentMapCacheManager remoteCacheManager;
+
+    @Mock
+    private CacheInvalidationPublisher invalidationPublisher;
+
+    @BeforeEach
+    void setUp() {
+        remoteCacheManager = new ConcurrentMapCacheManager(); //stands in for redis
+        cacheManager = new TwoLevelCacheManager(remoteCacheManager, new TwoLevelCacheProperties(100, Duration.ofMinutes(5), "channel"), invalidationPublisher);
+    }
+
+    private TwoLevelCache cache() {
+        return (TwoLevelCache) cacheManager.getCache(CACHE_NAME);
+    }
+
+    @Test
+    void givenValueInRemoteCache_whenGet_thenPopulateLocalCache() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        remoteCacheManager.getCache(CACHE_NAME).put(key, List.of("Flight1"));
+        // when
+        Cache.ValueWrapper value = cache().get(key);
+        // then
+        assertThat(value).isNotNull();
+        assertThat(value.get()).isEqualTo(List.of("Flight1"));
+        assertThat(cache().getLocalCache().getIfPresent(TwoLevelCache.localKey(key))).isEqualTo(List.of("Flight1"));
+    }
+
+    @Test
+    void givenValueInLocalCache_whenGet_thenDoNotHitRemoteCache() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        cache().put(key, List.of("Flight1"));
+        remoteCacheManager.getCache(CACHE_NAME).evict(key);
+        // when
+        Cache.ValueWrapper value = cache().get(key);
+        // then
+        assertThat(value).isNotNull();
+        assertThat(value.get()).isEqualTo(List.of("Flight1"));
+    }
+
+    @Test
+    void givenPutIfAbsentOnExistingRemoteValue_whenGet_thenReturnExistingValue() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        remoteCacheManager.getCache(CACHE_NAME).put(key, List.of("Flight1"));
+        // when
+        cache().putIfAbsent(key, List.of("Flight2"));
+        // then
+        assertThat(cache().get(key).get()).isEqualTo(List.of("Flight1"));
+    }
+
+    @Test
+    void givenCachedValue_whenClear_thenClearBothLevelsAndPublishInvalidation() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        cache().put(key, List.of("Flight1"));
+        // when
+        cache().clear();
+        // then
+        assertThat(cache().get(key)).isNull();
+        assertThat(remoteCacheManager.getCache(CACHE_NAME).get(key)).isNull();
+        verify(invalidationPublisher).publish(CACHE_NAME, null);
+    }
+
+    @Test
+    void givenInvalidationFromOtherNode_whenInvalidateLocal_thenEvictOnlyLocalEntry() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        cache().put(key, List.of("Flight1"));
+        given(invalidationPublisher.getNodeId()).willReturn("node1");
+        // when
+        cacheManager.invalidateLocal(new CacheInvalidationMessage("node2", CACHE_NAME, TwoLevelCache.localKey(key)));
+        // then
+        assertThat(cache().getLocalCache().getIfPresent(TwoLevelCache.localKey(key))).isNull();
+        assertThat(remoteCacheManager.getCache(CACHE_NAME).get(key)).isNotNull();
+    }
+
+    @Test
+    void givenInvalidationFromSameNode_whenInvalidateLocal_thenKeepLocalEntry() {
+        // given
+        List<Object> key = List.of("Location1", false, "", 50);
+        cache().put(key, List.of("Flight1"));
+        given(invalidationPublisher.getNodeId()).willReturn("node1");
+        // when
+        cacheManager.invalidateLocal(new CacheInvalidationMessage("node1", CACHE_NAME, null));
+        // then
+        assertThat(cache().getLocalCache().getIfPresent(TwoLevelCache.localKey(key))).isEqualTo(List.of("Flight1"));
+    }
+}
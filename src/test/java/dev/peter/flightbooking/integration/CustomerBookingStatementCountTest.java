@@ -0,0 +1,157 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
+import dev.peter.flightbooking.dto.CustomerBookingRequestDto;
+import dev.peter.flightbooking.service.CustomerService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the number of statements of a booking must not depend on how many flights the customer has already booked,
+// the booked flights of the response are read with one query
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CustomerService.class, CustomerBookingStatementCountTest.PasswordEncoderConfig.class})
+class CustomerBookingStatementCountTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    private static final int HISTORY_SIZE = 10_000;
+
+    private static final int SMALL_CUSTOMER_ID = 1_000_001;
+
+    private static final int LARGE_CUSTOMER_ID = 1_000_002;
+
+    private static final int NEW_FLIGHT_ID = 2_000_000;
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            // bookings never hash a password, the encoder only has to exist
+            return new PasswordEncoder() {
+                @Override
+                public String encode(CharSequence rawPassword) {
+                    return rawPassword.toString();
+                }
+
+                @Override
+                public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                    return rawPassword.toString().equals(encodedPassword);
+                }
+            };
+        }
+    }
+
+    // evicts cached pages in redis after commit, which this test has no part in
+    @MockBean
+    private FlightCacheInvalidator flightCacheInvalidator;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    static void beforeAll() {
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        List<Object[]> flights = IntStream.rangeClosed(0, HISTORY_SIZE)
+                .mapToObj(i -> new Object[]{NEW_FLIGHT_ID - i, "Flight" + i, 10.5, date, date, "Location1", "Location2", true})
+                .toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO flight (id, name, price, start_date, end_date, start_location, end_location, is_available) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                flights
+        );
+        jdbcTemplate.update("INSERT INTO customer (id, username, password, role) VALUES (?, 'small', 'password', 'USER'), (?, 'large', 'password', 'USER')",
+                SMALL_CUSTOMER_ID, LARGE_CUSTOMER_ID);
+
+        // customers_flights.flight_id holds the customer id, see Customer.bookedFlights mapping
+        jdbcTemplate.update("INSERT INTO customers_flights (flight_id, customer_id) VALUES (?, ?)", SMALL_CUSTOMER_ID, NEW_FLIGHT_ID - 1);
+        List<Object[]> bookings = IntStream.rangeClosed(1, HISTORY_SIZE)
+                .mapToObj(i -> new Object[]{LARGE_CUSTOMER_ID, NEW_FLIGHT_ID - i})
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO customers_flights (flight_id, customer_id) VALUES (?, ?)", bookings);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private long statementsToBookAndCancel(Integer customerId) {
+        entityManager.clear();
+        // a flight cached by the previous run would save its select and skew the comparison
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        customerService.bookCustomerFlight(customerId, new CustomerBookingRequestDto(NEW_FLIGHT_ID));
+        customerService.deleteBookedCustomerFlight(customerId, NEW_FLIGHT_ID);
+        entityManager.flush();
+
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void givenCustomersWithOneAndManyBookings_whenBookAndCancel_thenExecuteSameNumberOfStatements() {
+        // given
+        // when
+        long smallHistoryStatements = statementsToBookAndCancel(SMALL_CUSTOMER_ID);
+        long largeHistoryStatements = statementsToBookAndCancel(LARGE_CUSTOMER_ID);
+
+        // then
+        assertThat(largeHistoryStatements)
+                .isEqualTo(smallHistoryStatements)
+                .isLessThanOrEqualTo(8);
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -25,7 +26,9 @@ import org.testcontainers.containers.MySQLContainer;
 import java.util.HashSet;
 
 import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles(value = "test")
@@ -39,6 +42,8 @@ class CustomerControllerTest {
     private Integer port;
     @Autowired
     private CustomerRepository customerRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
 
     @BeforeAll
     static void beforeAll() {
@@ -161,8 +166,10 @@ class CustomerControllerTest {
                 .then()
                 .statusCode(HttpStatus.OK.value())
                 .body("username", equalTo(customerRequestDto.username()))
-                .body("password", equalTo(customerRequestDto.password()))
+                .body("password", not(equalTo(customerRequestDto.password())))
                 .body("role", equalTo(customer.getRole().name()));
+
+        assertThat(passwordEncoder.matches(customerRequestDto.password(), customerRepository.findById(id).orElseThrow().getPassword())).isTrue();
     }
 
     @Test
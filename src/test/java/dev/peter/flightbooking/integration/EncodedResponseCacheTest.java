@@ -0,0 +1,168 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "app.flights.response-cache.enabled=true",
+                "app.flights.response-cache.gzip-threshold=1B"
+        }
+)
+@ActiveProfiles(value = "test")
+class EncodedResponseCacheTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    static GenericContainer<?> redis = new GenericContainer<>(
+            "redis:alpine3.19"
+    ).withExposedPorts(6379);
+
+    @LocalServerPort
+    private Integer port;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void beforeAll() {
+        redis.start();
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+        redis.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getFirstMappedPort);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        flightRepository.deleteAllInBatch();
+        cacheManager.getCacheNames().forEach(cache -> Objects.requireNonNull(cacheManager.getCache(cache)).clear());
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2010-10-10T00:00:00"));
+        flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, date, null, "Location1", null, true),
+                new Flight(null, "Flight2", 15.5, date, null, "Location1", null, true)
+        ));
+    }
+
+    @Test
+    void givenCachedResponse_whenGetFlightsWithParametersReordered_thenReturnSameBytes() {
+        // given
+        double hitsBefore = meterRegistry.counter("flight.response.cache", "result", "hit").count();
+        Response first = given()
+                .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                .when()
+                .get("/v1/api/flights?startLocation=Location1&filterUnavailable=true");
+
+        // when
+        Response second = given()
+                .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                .when()
+                .get("/v1/api/flights?filterUnavailable=true&startLocation=Location1");
+
+        // then
+        second.then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.ETAG, equalTo(first.header(HttpHeaders.ETAG)))
+                .header(HttpHeaders.CONTENT_LENGTH, equalTo(String.valueOf(first.asByteArray().length)))
+                .header(HttpHeaders.CONTENT_ENCODING, nullValue())
+                .body(".", hasSize(2));
+        assertThat(second.asByteArray()).isEqualTo(first.asByteArray());
+        assertThat(meterRegistry.counter("flight.response.cache", "result", "hit").count()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    void givenCachedResponse_whenGetFlightsWithUnknownParameter_thenReturnCachedResponse() {
+        // given
+        double hitsBefore = meterRegistry.counter("flight.response.cache", "result", "hit").count();
+        Response first = given()
+                .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                .when()
+                .get("/v1/api/flights?startLocation=Location1");
+
+        // when
+        Response second = given()
+                .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                .when()
+                .get("/v1/api/flights?startLocation=Location1&unknown=1");
+
+        // then
+        second.then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.ETAG, equalTo(first.header(HttpHeaders.ETAG)));
+        assertThat(meterRegistry.counter("flight.response.cache", "result", "hit").count()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    void givenGzipAccepted_whenGetFlights_thenReturnGzipVariant() {
+        // given
+        String identityEtag = given()
+                .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+                .header(HttpHeaders.ETAG);
+
+        // when
+        given()
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.CONTENT_ENCODING, equalTo("gzip"))
+                .header(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING))
+                .header(HttpHeaders.ETAG, not(equalTo(identityEtag)))
+                .body(".", hasSize(2))
+                .body(".", everyItem(hasEntry("startLocation", "Location1")));
+    }
+}
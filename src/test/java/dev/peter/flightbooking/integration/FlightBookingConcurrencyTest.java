@@ -0,0 +1,131 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.dto.CustomerBookingRequestDto;
+import dev.peter.flightbooking.model.Customer;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.model.Role;
+import dev.peter.flightbooking.repository.CustomerRepository;
+import dev.peter.flightbooking.repository.FlightRepository;
+import dev.peter.flightbooking.service.CustomerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles(value = "test")
+class FlightBookingConcurrencyTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    private static final int CUSTOMERS = 300;
+
+    private static final int SEATS = 5;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void beforeAll() {
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("DELETE FROM customers_flights");
+        customerRepository.deleteAllInBatch();
+        flightRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void givenMoreCustomersThanSeats_whenBookConcurrently_thenNeverOversell() throws InterruptedException {
+        // given
+        Flight flight = flightRepository.save(new Flight(null, "Flight1", 10.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2030-10-10T12:00:00")), "Location1", "Location2", true, SEATS, SEATS));
+        List<Customer> customers = customerRepository.saveAll(IntStream.range(0, CUSTOMERS)
+                .mapToObj(i -> new Customer(null, "username" + i, "password", Role.USER, new HashSet<>()))
+                .toList());
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            customers.forEach(customer -> executor.submit(() -> {
+                start.await();
+                try {
+                    customerService.bookCustomerFlight(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+                    booked.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    if (e.getStatusCode() == HttpStatus.CONFLICT) {
+                        soldOut.incrementAndGet();
+                    } else {
+                        failures.add(e);
+                    }
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+                return null;
+            }));
+            start.countDown();
+        }
+
+        // then
+        assertThat(failures).isEmpty();
+        assertThat(booked.get()).isEqualTo(SEATS);
+        assertThat(soldOut.get()).isEqualTo(CUSTOMERS - SEATS);
+        assertThat(flightRepository.findById(flight.getId()).orElseThrow().getSeatsRemaining()).isZero();
+        // customers_flights.customer_id holds the flight id, see Customer.bookedFlights mapping
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers_flights WHERE customer_id = ?", Integer.class, flight.getId()))
+                .isEqualTo(SEATS);
+    }
+}
@@ -0,0 +1,172 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.cache.FlightCacheKeys;
+import dev.peter.flightbooking.dto.FlightPageResponseDto;
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import dev.peter.flightbooking.service.FlightService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@ActiveProfiles(value = "test")
+class FlightCacheInvalidationTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    static GenericContainer<?> redis = new GenericContainer<>(
+            "redis:alpine3.19"
+    ).withExposedPorts(6379);
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private FlightService flightService;
+
+    @SpyBean
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void beforeAll() {
+        redis.start();
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+        redis.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getFirstMappedPort);
+    }
+
+    @BeforeEach
+    void setUp() {
+        flightRepository.deleteAllInBatch();
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        cacheManager.getCacheNames().forEach(cache -> Objects.requireNonNull(cacheManager.getCache(cache)).clear());
+    }
+
+    private Flight saveFlight(String name, String startLocation) {
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        return flightRepository.save(new Flight(null, name, 10.5, date, date, startLocation, "Location9", true));
+    }
+
+    private Cache.ValueWrapper cachedStartLocationPage(String startLocation) {
+        return Objects.requireNonNull(cacheManager.getCache("flightStartLocation"))
+                .get(FlightCacheKeys.key(startLocation, false, null, PAGE_SIZE));
+    }
+
+    @Test
+    void givenCachedPages_whenFlightMovedToOtherStartLocation_thenEvictPagesOfOldAndNewRouteOnly() {
+        // given
+        Flight flight = saveFlight("Flight1", "Location1");
+        saveFlight("Flight2", "Location2");
+        saveFlight("Flight3", "Location3");
+        flightService.getFLightsByStartLocation("Location1", false, null, null);
+        flightService.getFLightsByStartLocation("Location2", false, null, null);
+        flightService.getFLightsByStartLocation("Location3", false, null, null);
+
+        // when
+        flight.setStartLocation("Location2");
+        flightRepository.save(flight);
+
+        // then
+        assertThat(cachedStartLocationPage("Location1")).isNull();
+        assertThat(cachedStartLocationPage("Location2")).isNull();
+        assertThat(cachedStartLocationPage("Location3")).isNotNull();
+        assertThat(flightService.getFLightsByStartLocation("Location2", false, null, null).flights()).hasSize(2);
+    }
+
+    @Test
+    void givenCachedPage_whenFlightDeleted_thenEvictPageOfItsRoute() {
+        // given
+        Flight flight = saveFlight("Flight1", "Location1");
+        saveFlight("Flight2", "Location1");
+        flightService.getFLightsByStartLocation("Location1", false, null, null);
+
+        // when
+        flightRepository.delete(flight);
+
+        // then
+        assertThat(cachedStartLocationPage("Location1")).isNull();
+        assertThat(flightService.getFLightsByStartLocation("Location1", false, null, null).flights()).hasSize(1);
+    }
+
+    @Test
+    void givenPageLoadedBeforeChange_whenChangeInvalidatesBeforePageIsStored_thenEvictStoredPage() throws Exception {
+        // given
+        Flight flight = saveFlight("Flight1", "Location1");
+        CountDownLatch pageRead = new CountDownLatch(1);
+        CountDownLatch flightChanged = new CountDownLatch(1);
+        // the page is read from the database, then held back until the change has been invalidated
+        doAnswer(invocation -> {
+            Object page = invocation.callRealMethod();
+            pageRead.countDown();
+            flightChanged.await(5, TimeUnit.SECONDS);
+            return page;
+        }).when(flightRepository).findPageByStartLocation(eq("Location1"), anyBoolean(), any(), any(), any());
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<FlightPageResponseDto> racedLoad = executor.submit(() -> flightService.getFLightsByStartLocation("Location1", false, null, null));
+            assertThat(pageRead.await(5, TimeUnit.SECONDS)).isTrue();
+            flight.setName("Flight1Renamed");
+            flightRepository.save(flight);
+            flightChanged.countDown();
+            racedLoad.get(5, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertThat(cachedStartLocationPage("Location1")).isNull();
+        assertThat(flightService.getFLightsByStartLocation("Location1", false, null, null).flights())
+                .extracting(FlightResponseDto::name)
+                .containsExactly("Flight1Renamed");
+    }
+}
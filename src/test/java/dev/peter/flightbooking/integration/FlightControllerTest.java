@@ -1,10 +1,12 @@
 package dev.peter.flightbooking.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.peter.flightbooking.controller.FlightController;
 import dev.peter.flightbooking.dto.FlightRequestDto;
 import dev.peter.flightbooking.dto.FlightResponseDto;
 import dev.peter.flightbooking.model.Flight;
 import dev.peter.flightbooking.repository.FlightRepository;
+import dev.peter.flightbooking.service.RouteGraphService;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.AfterAll;
@@ -15,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -57,6 +60,9 @@ class FlightControllerTest {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private RouteGraphService routeGraphService;
+
     @BeforeAll
     static void beforeAll() {
         redis.start();
@@ -136,6 +142,44 @@ class FlightControllerTest {
                 .body(".", everyItem(hasEntry("isAvailable", true)));
     }
 
+    @Test
+    void givenPageSize_whenGetFLightsByStartLocation_thenReturnPagesLinkedByCursor() {
+        // given
+        String startLocation = "Location1";
+        List<Flight> flights = List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-10T00:00:00")), null, startLocation, null, true),
+                new Flight(null, "Flight2", 15.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-11T00:00:00")), null, startLocation, null, true),
+                new Flight(null, "Flight3", 12.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-12T00:00:00")), null, startLocation, null, true)
+        );
+
+        flightRepository.saveAll(flights);
+
+        // when
+        String nextCursor = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/v1/api/flights?startLocation=" + startLocation + "&size=2")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body(".", hasSize(2))
+                .body("name", contains("Flight1", "Flight2"))
+                .header(FlightController.NEXT_CURSOR_HEADER, notNullValue())
+                .extract()
+                .header(FlightController.NEXT_CURSOR_HEADER);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/v1/api/flights?startLocation=" + startLocation + "&size=2&cursor=" + nextCursor)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body(".", hasSize(1))
+                .body("name", contains("Flight3"))
+                .header(FlightController.NEXT_CURSOR_HEADER, nullValue());
+    }
+
     @Test
     void givenInvalidStartLocation_whenGetFLightsByStartLocation_thenReturnError() {
         // given
@@ -393,6 +437,95 @@ class FlightControllerTest {
                 .body("status", equalTo(HttpStatus.NOT_FOUND.value()));
     }
 
+    @Test
+    void givenValidSearchCriteria_whenSearchFlights_thenReturnFlightsList() {
+        // given
+        String startLocation = "Location1";
+        String endLocation = "Location2";
+        List<Flight> flights = List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2010-10-10T12:00:00")), startLocation, endLocation, true),
+                new Flight(null, "Flight2", 15.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2010-10-10T12:00:00")), startLocation, endLocation, false),
+                new Flight(null, "Flight3", 12.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2010-10-10T12:00:00")), startLocation, "Location3", true),
+                new Flight(null, "Flight4", 55.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2010-10-10T12:00:00")), startLocation, endLocation, true)
+        );
+
+        flightRepository.saveAll(flights);
+
+        // when
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/v1/api/flights/search?startLocation=" + startLocation + "&endLocation=" + endLocation
+                        + "&startDate=2010-10-10&endDate=2010-10-10&maxPrice=50&filterUnavailable=true")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body(".", hasSize(1))
+                .body("[0].name", equalTo("Flight1"));
+    }
+
+    @Test
+    void givenNoSearchCriteria_whenSearchFlights_thenReturnError() {
+        // given
+        // when
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/v1/api/flights/search")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("title", equalTo("Bad Request"))
+                .body("status", equalTo(HttpStatus.BAD_REQUEST.value()));
+    }
+
+    @Test
+    void givenConnectingFlights_whenGetConnections_thenReturnItineraries() {
+        // given
+        List<Flight> flights = List.of(
+                new Flight(null, "Flight1", 100.0, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T06:00:00")), Timestamp.valueOf(LocalDateTime.parse("2030-10-10T08:00:00")), "Location1", "Location2", true),
+                new Flight(null, "Flight2", 100.0, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2030-10-10T12:00:00")), "Location2", "Location3", true),
+                new Flight(null, "Flight3", 500.0, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T07:00:00")), Timestamp.valueOf(LocalDateTime.parse("2030-10-10T09:00:00")), "Location1", "Location3", true)
+        );
+
+        flightRepository.saveAll(flights);
+        routeGraphService.rebuild();
+
+        // when
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/v1/api/flights/connections?startLocation=Location1&endLocation=Location3&startDate=2030-10-10&sort=CHEAPEST")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body(".", hasSize(2))
+                .body("[0].flights.name", contains("Flight1", "Flight2"))
+                .body("[0].totalPrice", equalTo(200.0f))
+                .body("[1].flights.name", contains("Flight3"));
+    }
+
+    @Test
+    void givenNoConnectingFlights_whenGetConnections_thenReturnError() {
+        // given
+        routeGraphService.rebuild();
+
+        // when
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/v1/api/flights/connections?startLocation=Location1&endLocation=Location3")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.NOT_FOUND.value())
+                .body("title", equalTo("Connections not found"))
+                .body("status", equalTo(HttpStatus.NOT_FOUND.value()));
+    }
+
     @Test
     void givenFlight_whenCreateFlight_thenStatus201() {
         // given
@@ -462,4 +595,237 @@ class FlightControllerTest {
                 .body("title", equalTo("Flight not found"))
                 .body("status", equalTo(HttpStatus.NOT_FOUND.value()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenETag_whenGetFlightsWithIfNoneMatch_thenReturnNotModified() {
+        // given
+        flightRepository.save(new Flight(null, "Flight1", 10.5, Timestamp.valueOf(LocalDateTime.parse("2010-10-10T00:00:00")), null, "Location1", null, true));
+        String etag = given()
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.ETAG, notNullValue())
+                .extract()
+                .header(HttpHeaders.ETAG);
+
+        // when
+        given()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.NOT_MODIFIED.value())
+                .header(HttpHeaders.ETAG, equalTo(etag));
+    }
+
+    @Test
+    void givenFlightOfRouteDeleted_whenGetFlightsWithIfNoneMatch_thenReturnFlights() {
+        // given
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2010-10-10T00:00:00"));
+        flightRepository.save(new Flight(null, "Flight1", 10.5, date, null, "Location1", null, true));
+        Integer id = flightRepository.save(new Flight(null, "Flight2", 15.5, date, null, "Location1", null, true)).getId();
+        String etag = given()
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+                .header(HttpHeaders.ETAG);
+        given()
+                .when()
+                .delete("/v1/api/flights/" + id)
+                .then()
+                .statusCode(HttpStatus.OK.value());
+
+        // when
+        given()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.ETAG, not(equalTo(etag)))
+                .body(".", hasSize(1));
+    }
+
+    @Test
+    void givenCsvWithInvalidRow_whenImportFlights_thenImportValidRowsAndReportError() {
+        // given
+        String csv = """
+                name,price,startDate,endDate,startLocation,endLocation,isAvailable,capacity
+                Flight1,10.5,2030-10-10T10:00:00,2030-10-10T12:00:00,Location1,Location2,true,100
+                Flight2,abc,2030-10-10T10:00:00,2030-10-10T12:00:00,Location1,Location2,true,100
+                Flight3,12.5,2030-10-11T10:00:00,,Location2,Location3,false,
+                """;
+
+        // when
+        String response = given()
+                .contentType("text/csv")
+                .body(csv)
+                .when()
+                .post("/v1/api/flights/import")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .asString();
+
+        List<String> events = response.lines().toList();
+        assertThat(events).anyMatch(event -> event.contains("\"type\":\"error\"") && event.contains("\"line\":3"));
+        assertThat(events.get(events.size() - 1)).contains("\"type\":\"summary\"", "\"processed\":3", "\"imported\":2", "\"failed\":1");
+        assertThat(flightRepository.findAll())
+                .extracting(Flight::getName)
+                .containsExactlyInAnyOrder("Flight1", "Flight3");
+    }
+
+    @Test
+    void givenCsvRowRejectedByDatabase_whenImportFlights_thenImportOtherRowsOfBatch() {
+        // given
+        String csv = """
+                name,price,startDate,endDate,startLocation,endLocation,isAvailable,capacity
+                Flight1,10.5,2030-10-10T10:00:00,2030-10-10T12:00:00,Location1,Location2,true,100
+                %s,11.5,2030-10-10T10:00:00,2030-10-10T12:00:00,Location1,Location2,true,100
+                Flight3,12.5,2030-10-11T10:00:00,,Location2,Location3,false,
+                """.formatted("x".repeat(300));
+
+        // when
+        String response = given()
+                .contentType("text/csv")
+                .body(csv)
+                .when()
+                .post("/v1/api/flights/import")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .asString();
+
+        List<String> events = response.lines().toList();
+        assertThat(events).anyMatch(event -> event.contains("\"type\":\"error\"") && event.contains("\"line\":3"));
+        assertThat(events.get(events.size() - 1)).contains("\"type\":\"summary\"", "\"processed\":3", "\"imported\":2", "\"failed\":1");
+        assertThat(flightRepository.findAll())
+                .extracting(Flight::getName)
+                .containsExactlyInAnyOrder("Flight1", "Flight3");
+    }
+
+    @Test
+    void givenNdjson_whenImportFlights_thenImportFlightsWithSeats() {
+        // given
+        String ndjson = """
+                {"name":"Flight1","price":10.5,"startDate":"2030-10-10T10:00:00.000+00:00","startLocation":"Location1","isAvailable":true,"capacity":5}
+                {"name":"","price":10.5,"startDate":"2030-10-10T10:00:00.000+00:00","startLocation":"Location1"}
+                """;
+
+        // when
+        String response = given()
+                .contentType("application/x-ndjson")
+                .body(ndjson)
+                .when()
+                .post("/v1/api/flights/import")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .asString();
+
+        assertThat(response).contains("Name is required", "\"imported\":1", "\"failed\":1");
+        assertThat(flightRepository.findAll())
+                .singleElement()
+                .satisfies(flight -> assertThat(flight.getSeatsRemaining()).isEqualTo(5));
+    }
+
+    @Test
+    void givenFlights_whenExportFlightsAsCsv_thenStreamHeaderAndRowsInIdOrder() {
+        // given
+        flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00")), Timestamp.valueOf(LocalDateTime.parse("2030-10-10T12:00:00")), "Location1", "Location2", true, 100, 100),
+                new Flight(null, "Flight2", 15.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-11T10:00:00")), null, "Location2", null, false)
+        ));
+
+        // when
+        String response = given()
+                .when()
+                .get("/v1/api/flights/export?format=CSV")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType(containsString("text/csv"))
+                .extract()
+                .asString();
+
+        assertThat(response.lines().toList()).containsExactly(
+                "name,price,startDate,endDate,startLocation,endLocation,isAvailable,capacity",
+                "Flight1,10.5,2030-10-10T10:00,2030-10-10T12:00,Location1,Location2,true,100",
+                "Flight2,15.5,2030-10-11T10:00,,Location2,,false,"
+        );
+    }
+
+    @Test
+    void givenFlightsWithCommasAndQuotes_whenExportAndImportCsv_thenRoundTripValues() {
+        // given
+        flightRepository.save(new Flight(null, "Flight \"One\", Economy", 10.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00")), null, "Location1,\nTerminal 2", "Location2", true));
+        String csv = given()
+                .when()
+                .get("/v1/api/flights/export?format=CSV")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .asString();
+        flightRepository.deleteAll();
+
+        // when
+        String response = given()
+                .contentType("text/csv")
+                .body(csv)
+                .when()
+                .post("/v1/api/flights/import")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .asString();
+
+        assertThat(csv).contains("\"Flight \"\"One\"\", Economy\"");
+        assertThat(response).contains("\"imported\":1", "\"failed\":0");
+        assertThat(flightRepository.findAll())
+                .singleElement()
+                .satisfies(flight -> {
+                    assertThat(flight.getName()).isEqualTo("Flight \"One\", Economy");
+                    assertThat(flight.getStartLocation()).isEqualTo("Location1,\nTerminal 2");
+                });
+    }
+
+    @Test
+    void givenFlights_whenExportFlightsAsNdjson_thenStreamOneFlightPerLine() {
+        // given
+        flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00")), null, "Location1", null, true),
+                new Flight(null, "Flight2", 15.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-11T10:00:00")), null, "Location1", null, true),
+                new Flight(null, "Flight3", 12.5, Timestamp.valueOf(LocalDateTime.parse("2030-10-12T10:00:00")), null, "Location1", null, true)
+        ));
+
+        // when
+        String response = given()
+                .when()
+                .get("/v1/api/flights/export")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType(containsString("application/x-ndjson"))
+                .extract()
+                .asString();
+
+        List<String> lines = response.lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\"name\":\"Flight1\"");
+        assertThat(lines.get(2)).contains("\"name\":\"Flight3\"");
+    }
+}
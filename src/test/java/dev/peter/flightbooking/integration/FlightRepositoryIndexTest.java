@@ -0,0 +1,197 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.repository.FlightRepository;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
+import org.testcontainers.containers.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// schema comes from the flyway migrations, so the plans are checked against the V4 indexes
+@DataJpaTest(properties = {"spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=none"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FlightRepositoryIndexTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    // last flight select hibernate sent to the driver, with its bound parameters
+    private static final AtomicReference<QueryInfo> lastFlightQuery = new AtomicReference<>();
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class QueryCaptureConfig {
+
+        @Bean
+        static BeanPostProcessor queryCapturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .listener(new FlightQueryListener())
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    static class FlightQueryListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            queryInfoList.stream()
+                    .filter(queryInfo -> queryInfo.getQuery().startsWith("select") && queryInfo.getQuery().contains(" from flight "))
+                    .forEach(lastFlightQuery::set);
+        }
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime base = LocalDateTime.parse("2010-01-01T06:00:00");
+        List<Object[]> rows = IntStream.range(0, 5000)
+                .mapToObj(i -> new Object[]{
+                        i + 1,
+                        "Flight" + i,
+                        10.5 + i % 50,
+                        Timestamp.valueOf(base.plusDays(i % 365).plusHours(i % 12)),
+                        Timestamp.valueOf(base.plusDays(i % 365).plusHours(i % 12 + 2)),
+                        "Location" + i % 100,
+                        "Location" + (i + 1) % 100,
+                        true
+                })
+                .toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO flight (id, name, price, start_date, end_date, start_location, end_location, is_available) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                rows
+        );
+        jdbcTemplate.execute("ANALYZE TABLE flight");
+        lastFlightQuery.set(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM flight");
+    }
+
+    // replays the generated sql with the same parameter setters hibernate used
+    private Map<String, Object> explainLastFlightQuery() {
+        QueryInfo queryInfo = lastFlightQuery.get();
+        assertThat(queryInfo).isNotNull();
+        List<ParameterSetOperation> parameters = queryInfo.getParametersList().get(0);
+        return jdbcTemplate.query(
+                "EXPLAIN " + queryInfo.getQuery(),
+                ps -> parameters.forEach(parameter -> ReflectionUtils.invokeMethod(parameter.getMethod(), ps, parameter.getArgs())),
+                new ColumnMapRowMapper()
+        ).get(0);
+    }
+
+    @Test
+    void givenTimeFramePageQuery_whenExplain_thenUseStartDateEndDateIndex() {
+        // given
+        flightRepository.findPageByStartDateAndEndDate("2010-03-01", "2010-03-01", false, null, null, PageRequest.ofSize(50));
+        // when
+        Map<String, Object> plan = explainLastFlightQuery();
+        // then
+        assertThat(plan)
+                .containsEntry("key", "idx_flight_start_date_end_date")
+                .containsEntry("type", "range");
+    }
+
+    @Test
+    void givenStartLocationPageQuery_whenExplain_thenUseStartLocationIndex() {
+        // given
+        flightRepository.findPageByStartLocation("Location1", false, null, null, PageRequest.ofSize(50));
+        // when
+        Map<String, Object> plan = explainLastFlightQuery();
+        // then
+        assertThat(plan)
+                .containsEntry("key", "idx_flight_start_location_start_date")
+                .containsEntry("type", "ref");
+    }
+
+    @Test
+    void givenEndLocationPageQuery_whenExplain_thenUseEndLocationIndex() {
+        // given
+        flightRepository.findPageByEndLocation("Location1", false, null, null, PageRequest.ofSize(50));
+        // when
+        Map<String, Object> plan = explainLastFlightQuery();
+        // then
+        assertThat(plan)
+                .containsEntry("key", "idx_flight_end_location_start_date")
+                .containsEntry("type", "ref");
+    }
+
+    @Test
+    void givenStartLocationNextPageQuery_whenExplain_thenRangeScanStartLocationIndex() {
+        // given
+        flightRepository.findPageByStartLocation("Location1", true, Timestamp.valueOf("2010-06-01 00:00:00"), 1, PageRequest.ofSize(50));
+        // when
+        Map<String, Object> plan = explainLastFlightQuery();
+        // then
+        assertThat(plan)
+                .containsEntry("key", "idx_flight_start_location_start_date")
+                .containsEntry("type", "range");
+    }
+}
@@ -0,0 +1,138 @@
+package dev.peter.flightbooking.integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "app.rate-limit.enabled=true",
+                "app.rate-limit.read-capacity=3",
+                "app.rate-limit.read-refill-per-second=0.01",
+                "app.rate-limit.write-capacity=1",
+                "app.rate-limit.write-refill-per-second=0.01"
+        }
+)
+@ActiveProfiles(value = "test")
+class RateLimitTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    static GenericContainer<?> redis = new GenericContainer<>(
+            "redis:alpine3.19"
+    ).withExposedPorts(6379);
+
+    @LocalServerPort
+    private Integer port;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void beforeAll() {
+        redis.start();
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+        redis.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getFirstMappedPort);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Test
+    void givenReadBudgetSpent_whenGetFlights_thenReturnTooManyRequestsWithRetryAfter() {
+        // given
+        double rejectedBefore = meterRegistry.counter("http.rate.limit", "budget", "read", "result", "rejected").count();
+        for (int i = 0; i < 3; i++) {
+            given()
+                    .when()
+                    .get("/v1/api/flights?startLocation=Location1")
+                    .then()
+                    .statusCode(HttpStatus.OK.value())
+                    .header("X-RateLimit-Remaining", equalTo(String.valueOf(2 - i)));
+        }
+
+        // when
+        given()
+                .when()
+                .get("/v1/api/flights?startLocation=Location1")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.TOO_MANY_REQUESTS.value())
+                .header(HttpHeaders.RETRY_AFTER, notNullValue())
+                .body("title", equalTo("Too Many Requests"))
+                .body("status", equalTo(HttpStatus.TOO_MANY_REQUESTS.value()));
+        assertThat(meterRegistry.counter("http.rate.limit", "budget", "read", "result", "rejected").count())
+                .isEqualTo(rejectedBefore + 1);
+    }
+
+    @Test
+    void givenReadBudgetSpent_whenCreateFlight_thenWriteBudgetIsSeparate() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            given().when().get("/v1/api/flights?startLocation=Location1");
+        }
+
+        // when
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/v1/api/flights")
+
+                // then
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value());
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/v1/api/flights")
+                .then()
+                .statusCode(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+}
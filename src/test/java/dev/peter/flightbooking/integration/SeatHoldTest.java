@@ -0,0 +1,242 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.dto.CustomerBookingRequestDto;
+import dev.peter.flightbooking.dto.SeatHoldResponseDto;
+import dev.peter.flightbooking.model.Customer;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.model.Role;
+import dev.peter.flightbooking.repository.CustomerRepository;
+import dev.peter.flightbooking.repository.FlightRepository;
+import dev.peter.flightbooking.service.SeatHoldService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "app.bookings.holds.ttl=2s")
+@ActiveProfiles(value = "test")
+class SeatHoldTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    static GenericContainer<?> redis = new GenericContainer<>(
+            "redis:alpine3.19"
+    ).withExposedPorts(6379);
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void beforeAll() {
+        redis.start();
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+        redis.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getFirstMappedPort);
+    }
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("DELETE FROM customers_flights");
+        customerRepository.deleteAllInBatch();
+        flightRepository.deleteAllInBatch();
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    private Flight saveFlight(int seats) {
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        return flightRepository.save(new Flight(null, "Flight1", 10.5, date, date, "Location1", "Location2", true, seats, seats));
+    }
+
+    private Customer saveCustomer(String username) {
+        return customerRepository.save(new Customer(null, username, "password", Role.USER, new HashSet<>()));
+    }
+
+    @Test
+    void givenAllSeatsHeld_whenHoldSeat_thenThrowSoldOut() {
+        // given
+        Flight flight = saveFlight(2);
+        Customer customer = saveCustomer("username");
+        seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+        seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // when
+        // then
+        assertThatThrownBy(() -> seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId())))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Flight sold out")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.CONFLICT);
+        assertThat(flightRepository.findById(flight.getId()).orElseThrow().getSeatsRemaining()).isEqualTo(2);
+    }
+
+    @Test
+    void givenExpiredHold_whenHoldSeat_thenSeatIsReturned() throws InterruptedException {
+        // given
+        Flight flight = saveFlight(1);
+        Customer customer = saveCustomer("username");
+        seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+        double expiredBefore = meterRegistry.counter("flight.seat.holds", "result", "expired").count();
+
+        // when
+        Thread.sleep(2100);
+        SeatHoldResponseDto hold = seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // then
+        assertThat(hold.flightId()).isEqualTo(flight.getId());
+        assertThat(meterRegistry.counter("flight.seat.holds", "result", "expired").count()).isEqualTo(expiredBefore + 1);
+    }
+
+    @Test
+    void givenHold_whenConfirmSeatHold_thenBookSeatAndRemoveHold() {
+        // given
+        Flight flight = saveFlight(1);
+        Customer customer = saveCustomer("username");
+        SeatHoldResponseDto hold = seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // when
+        seatHoldService.confirmSeatHold(customer.getId(), hold.holdId());
+
+        // then
+        assertThat(flightRepository.findById(flight.getId()).orElseThrow().getSeatsRemaining()).isZero();
+        assertThat(customerRepository.countBooking(customer.getId(), flight.getId())).isEqualTo(1);
+        assertThatThrownBy(() -> seatHoldService.confirmSeatHold(customer.getId(), hold.holdId()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Seat hold not found");
+    }
+
+    @Test
+    void givenLastSeatHeldByOtherCustomer_whenBookSeat_thenThrowSoldOut() {
+        // given
+        Flight flight = saveFlight(1);
+        Customer holder = saveCustomer("holder");
+        Customer buyer = saveCustomer("buyer");
+        seatHoldService.holdSeat(holder.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // when
+        // then
+        assertThatThrownBy(() -> seatHoldService.bookSeat(buyer.getId(), new CustomerBookingRequestDto(flight.getId())))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Flight sold out")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.CONFLICT);
+        assertThat(customerRepository.countBooking(buyer.getId(), flight.getId())).isZero();
+        assertThat(flightRepository.findById(flight.getId()).orElseThrow().getSeatsRemaining()).isEqualTo(1);
+    }
+
+    @Test
+    void givenDirectBooking_whenHoldSeat_thenCountOnlyRemainingSeats() {
+        // given
+        Flight flight = saveFlight(2);
+        Customer buyer = saveCustomer("buyer");
+        Customer holder = saveCustomer("holder");
+        seatHoldService.bookSeat(buyer.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // when
+        seatHoldService.holdSeat(holder.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // then
+        assertThat(customerRepository.countBooking(buyer.getId(), flight.getId())).isEqualTo(1);
+        assertThatThrownBy(() -> seatHoldService.holdSeat(holder.getId(), new CustomerBookingRequestDto(flight.getId())))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Flight sold out");
+    }
+
+    @Test
+    void givenFlightWithoutCapacity_whenBookSeat_thenBookWithoutHold() {
+        // given
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        Flight flight = flightRepository.save(new Flight(null, "Flight1", 10.5, date, date, "Location1", "Location2", true));
+        Customer buyer = saveCustomer("buyer");
+
+        // when
+        seatHoldService.bookSeat(buyer.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // then
+        assertThat(customerRepository.countBooking(buyer.getId(), flight.getId())).isEqualTo(1);
+        assertThat(redisTemplate.keys("flightbooking:hold*")).isEmpty();
+        assertThat(redisTemplate.hasKey("flightbooking:seat-version:" + flight.getId())).isFalse();
+    }
+
+    @Test
+    void givenHoldOfOtherCustomer_whenReleaseSeatHold_thenThrowNotFound() {
+        // given
+        Flight flight = saveFlight(1);
+        Customer owner = saveCustomer("owner");
+        Customer other = saveCustomer("other");
+        SeatHoldResponseDto hold = seatHoldService.holdSeat(owner.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // when
+        // then
+        assertThatThrownBy(() -> seatHoldService.releaseSeatHold(other.getId(), hold.holdId()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenReleasedHold_whenHoldSeat_thenSeatIsAvailableAgain() {
+        // given
+        Flight flight = saveFlight(1);
+        Customer customer = saveCustomer("username");
+        SeatHoldResponseDto hold = seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId()));
+
+        // when
+        seatHoldService.releaseSeatHold(customer.getId(), hold.holdId());
+
+        // then
+        assertThat(seatHoldService.holdSeat(customer.getId(), new CustomerBookingRequestDto(flight.getId())).holdId())
+                .isNotEqualTo(hold.holdId());
+    }
+}
@@ -0,0 +1,187 @@
+package dev.peter.flightbooking.integration;
+
+import dev.peter.flightbooking.dto.CustomerBookingRequestDto;
+import dev.peter.flightbooking.model.Customer;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.model.Role;
+import dev.peter.flightbooking.repository.CustomerRepository;
+import dev.peter.flightbooking.repository.FlightRepository;
+import dev.peter.flightbooking.service.CustomerService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the test application.properties replaces the main one, so the second-level cache is switched on here
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=fail",
+        "spring.jpa.properties.jakarta.persistence.sharedCache.mode=ENABLE_SELECTIVE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles(value = "test")
+class SecondLevelCacheTest {
+
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>(
+            "mysql:8.3.0"
+    ).withReuse(true);
+
+    static GenericContainer<?> redis = new GenericContainer<>(
+            "redis:alpine3.19"
+    ).withExposedPorts(6379);
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void beforeAll() {
+        redis.start();
+        mySQLContainer.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        mySQLContainer.stop();
+        redis.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getFirstMappedPort);
+    }
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("DELETE FROM customers_flights");
+        customerRepository.deleteAllInBatch();
+        flightRepository.deleteAllInBatch();
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    private Flight saveFlight(int seats) {
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        return flightRepository.save(new Flight(null, "Flight1", 10.5, date, date, "Location1", "Location2", true, seats, seats));
+    }
+
+    private CacheRegionStatistics regionStatistics(String region) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getDomainDataRegionStatistics(region);
+    }
+
+    @Test
+    void givenLoadedCustomer_whenFindById_thenServeFromSecondLevelCache() {
+        // given
+        Integer id = customerRepository.save(new Customer(null, "username", "password", Role.USER, new HashSet<>())).getId();
+        entityManagerFactory.getCache().evictAll();
+        customerRepository.findById(id);
+
+        // when
+        Customer customer = customerRepository.findById(id).orElseThrow();
+
+        // then
+        assertThat(customer.getUsername()).isEqualTo("username");
+        assertThat(regionStatistics("customer").getHitCount()).isEqualTo(1);
+        assertThat(regionStatistics("customer").getMissCount()).isEqualTo(1);
+        FunctionCounter hits = meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", "customer")
+                .tag("result", "hit")
+                .functionCounter();
+        assertThat(hits).isNotNull();
+        assertThat(hits.count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCachedFlight_whenBookFlight_thenFindByIdReturnsCurrentSeats() {
+        // given
+        Integer id = saveFlight(2).getId();
+        Integer customerId = customerRepository.save(new Customer(null, "username", "password", Role.USER, new HashSet<>())).getId();
+        flightRepository.findById(id);
+
+        // when
+        customerService.bookCustomerFlight(customerId, new CustomerBookingRequestDto(id));
+
+        // then
+        assertThat(flightRepository.findById(id).orElseThrow().getSeatsRemaining()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCachedFlights_whenBookOneFlight_thenServeOtherFlightFromSecondLevelCache() {
+        // given
+        Integer bookedId = saveFlight(2).getId();
+        Integer otherId = saveFlight(2).getId();
+        Integer customerId = customerRepository.save(new Customer(null, "username", "password", Role.USER, new HashSet<>())).getId();
+        entityManagerFactory.getCache().evictAll();
+        flightRepository.findById(otherId);
+
+        // when
+        customerService.bookCustomerFlight(customerId, new CustomerBookingRequestDto(bookedId));
+
+        // then
+        assertThat(entityManagerFactory.getCache().contains(Flight.class, otherId)).isTrue();
+        assertThat(entityManagerFactory.getCache().contains(Flight.class, bookedId)).isFalse();
+    }
+
+    @Test
+    void givenCachedBookedFlights_whenBookFlight_thenCustomerShowsNewBooking() {
+        // given
+        Flight flight = saveFlight(2);
+        Integer customerId = customerRepository.save(new Customer(null, "username", "password", Role.USER, new HashSet<>())).getId();
+        assertThat(bookedFlightCount(customerId)).isZero();
+
+        // when
+        customerService.bookCustomerFlight(customerId, new CustomerBookingRequestDto(flight.getId()));
+
+        // then
+        assertThat(bookedFlightCount(customerId)).isEqualTo(1);
+    }
+
+    private int bookedFlightCount(Integer customerId) {
+        return transactionTemplate.execute(status -> customerService.getCustomerById(customerId).bookedFlights().size());
+    }
+}
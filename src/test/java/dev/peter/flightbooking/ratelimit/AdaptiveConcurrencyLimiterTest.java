@@ -0,0 +1,126 @@
+package dev.peter.flightbooking.ratelimit;
+
+import dev.peter.flightbooking.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueue) {
+        return new AdaptiveConcurrencyLimiter(
+                new ConcurrencyLimitProperties(true, initialLimit, 2, 100, maxQueue, Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                meterRegistry
+        );
+    }
+
+    @Test
+    void givenLimitReachedAndNoQueue_whenAcquire_thenRejectWithRetryAfter() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0);
+        limiter.acquire();
+        limiter.acquire();
+
+        // when
+        // then
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.SERVICE_UNAVAILABLE)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1"));
+        assertThat(meterRegistry.counter("db.concurrency.rejected").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("db.concurrency.in.flight").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void givenSlotReleasedWhileQueued_whenAcquire_thenProceed() throws InterruptedException {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1);
+        long first = limiter.acquire();
+        limiter.acquire();
+        Thread releaser = Thread.ofVirtual().start(() -> limiter.release(first));
+
+        // when
+        limiter.acquire();
+        releaser.join();
+
+        // then
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getQueued()).isZero();
+    }
+
+    @Test
+    void givenSteadyLatencyAtFullLoad_whenSample_thenGrowLimit() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 0);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(10), (int) limiter.getLimit());
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void givenRisingLatency_whenSample_thenShrinkLimit() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(50, 0);
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(10), 0);
+        }
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(100), (int) limiter.getLimit());
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isLessThan(50);
+        assertThat(meterRegistry.get("db.concurrency.limit").gauge().value()).isEqualTo(limiter.getLimit());
+    }
+
+    @Test
+    void givenFewCallsInFlight_whenSample_thenKeepLimit() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 0);
+
+        // when
+        limiter.onSample(TimeUnit.MILLISECONDS.toNanos(10), 1);
+        limiter.onSample(TimeUnit.MILLISECONDS.toNanos(500), 1);
+
+        // then
+        assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void givenLongRunningCallAtFullLoad_whenReleaseWithoutSample_thenFreeSlotAndKeepLimit() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0);
+        limiter.acquire();
+        limiter.acquire();
+
+        // when
+        limiter.releaseWithoutSample();
+
+        // then
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+}
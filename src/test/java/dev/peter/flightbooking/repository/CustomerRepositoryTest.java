@@ -109,4 +109,41 @@ class CustomerRepositoryTest {
         // then
         assertThat(bookedFlights).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenCustomerAndFlight_whenInsertBooking_thenBookedFlightsContainFlight() {
+        // given
+        Flight flight = flightRepository.save(new Flight(null, "flight1", 10.5, Timestamp.valueOf("2011-10-10 00:00:00"), null, "start", null, true));
+        Customer customer = customerRepository.save(new Customer(null, "username", "", Role.USER, new HashSet<>()));
+
+        // when
+        int inserted = customerRepository.insertBooking(customer.getId(), flight.getId());
+        int insertedAgain = customerRepository.insertBooking(customer.getId(), flight.getId());
+
+        // then
+        assertThat(inserted).isEqualTo(1);
+        assertThat(insertedAgain).isZero();
+        assertThat(customerRepository.countBooking(customer.getId(), flight.getId())).isEqualTo(1);
+        assertThat(customerRepository.findBookedFlightsByCustomerId(customer.getId()))
+                .extracting(Flight::getId)
+                .containsExactly(flight.getId());
+    }
+
+    @Test
+    void givenBooking_whenDeleteBooking_thenRemoveOnlyThatBooking() {
+        // given
+        Flight flight1 = flightRepository.save(new Flight(null, "flight1", 10.5, Timestamp.valueOf("2011-10-10 00:00:00"), null, "start", null, true));
+        Flight flight2 = flightRepository.save(new Flight(null, "flight2", 10.5, Timestamp.valueOf("2011-10-10 00:00:00"), null, "start", null, true));
+        Customer customer = customerRepository.save(new Customer(null, "username", "", Role.USER, new HashSet<>()));
+        customerRepository.insertBooking(customer.getId(), flight1.getId());
+        customerRepository.insertBooking(customer.getId(), flight2.getId());
+
+        // when
+        int deleted = customerRepository.deleteBooking(customer.getId(), flight1.getId());
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(customerRepository.countBooking(customer.getId(), flight1.getId())).isZero();
+        assertThat(customerRepository.countBooking(customer.getId(), flight2.getId())).isEqualTo(1);
+    }
+}
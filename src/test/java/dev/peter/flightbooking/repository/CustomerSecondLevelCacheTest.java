@@ -0,0 +1,126 @@
+package dev.peter.flightbooking.repository;
+
+import dev.peter.flightbooking.model.Customer;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.model.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// boots the persistence unit with the regions of application.conf, a region the provider does not know fails the boot.
+// read-write regions only serve entries stored before the reading transaction began, so every call runs in its own transaction
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=fail",
+        "spring.jpa.properties.jakarta.persistence.sharedCache.mode=ENABLE_SELECTIVE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerSecondLevelCacheTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @BeforeEach
+    void setUp() {
+        entityManagerFactory.getCache().evictAll();
+        statistics().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerRepository.deleteAll();
+        flightRepository.deleteAll();
+    }
+
+    // the collection is lazy, so it is read while its persistence context is still open
+    private List<String> bookedFlightNames(Integer customerId) {
+        return transactionTemplate.execute(status -> customerRepository.findById(customerId).orElseThrow()
+                .getBookedFlights().stream()
+                .map(Flight::getName)
+                .toList());
+    }
+
+    @Test
+    void givenLoadedCustomer_whenFindById_thenServeFromCustomerRegion() {
+        // given
+        Integer id = customerRepository.save(new Customer(null, "username", "password", Role.USER, new HashSet<>())).getId();
+        entityManagerFactory.getCache().evictAll();
+        customerRepository.findById(id);
+
+        // when
+        Customer customer = customerRepository.findById(id).orElseThrow();
+
+        // then
+        assertThat(customer.getUsername()).isEqualTo("username");
+        assertThat(statistics().getDomainDataRegionStatistics("customer").getMissCount()).isEqualTo(1);
+        assertThat(statistics().getDomainDataRegionStatistics("customer").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenLoadedFlight_whenFindById_thenServeFromFlightRegion() {
+        // given
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        Integer id = flightRepository.save(new Flight(null, "Flight1", 10.5, date, date, "Location1", "Location2", true)).getId();
+        entityManagerFactory.getCache().evictAll();
+        flightRepository.findById(id);
+
+        // when
+        Flight flight = flightRepository.findById(id).orElseThrow();
+
+        // then
+        assertThat(flight.getName()).isEqualTo("Flight1");
+        assertThat(statistics().getDomainDataRegionStatistics("flight").getMissCount()).isEqualTo(1);
+        assertThat(statistics().getDomainDataRegionStatistics("flight").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenLoadedBookedFlights_whenLoadAgain_thenServeFromBookedFlightsRegion() {
+        // given
+        Timestamp date = Timestamp.valueOf(LocalDateTime.parse("2030-10-10T10:00:00"));
+        Integer flightId = flightRepository.save(new Flight(null, "Flight1", 10.5, date, date, "Location1", "Location2", true)).getId();
+        // the booked flight has to be managed by the saving transaction, persist cascades to it and rejects a detached one
+        Integer id = transactionTemplate.execute(status -> customerRepository.save(new Customer(null, "username", "password", Role.USER,
+                new HashSet<>(Set.of(flightRepository.findById(flightId).orElseThrow())))).getId());
+        entityManagerFactory.getCache().evictAll();
+        bookedFlightNames(id);
+
+        // when
+        List<String> bookedFlightNames = bookedFlightNames(id);
+
+        // then
+        assertThat(bookedFlightNames).containsExactly("Flight1");
+        assertThat(statistics().getDomainDataRegionStatistics("customerBookedFlights").getHitCount()).isEqualTo(1);
+    }
+}
@@ -1,11 +1,13 @@
 package dev.peter.flightbooking.repository;
 
+import dev.peter.flightbooking.dto.FlightResponseDto;
 import dev.peter.flightbooking.model.Flight;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
@@ -25,74 +27,6 @@ class FlightRepositoryTest {
         flightRepository.deleteAll();
     }
 
-    @Test
-    void givenValidStartDateAndEndDate_whenFindByStartDateAndEndDate_thenReturnFlightsList() {
-        // given
-        String startDate = "2011-10-10";
-        String endDate = "2011-10-11";
-        Flight flight = new Flight(null, "Flight1", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, true);
-        flightRepository.save(flight);
-        // when
-        List<Flight> flights = flightRepository.findByStartDateAndEndDate(startDate, endDate);
-        // then
-        assertThat(flights).isNotEmpty()
-                .hasSize(1)
-                .allMatch(el ->
-                        el.getStartDate().toLocalDateTime().toLocalDate().toString().equals(startDate)
-                                && el.getEndDate().toLocalDateTime().toLocalDate().toString().equals(endDate)
-                                && el.getName().equals("Flight1"));
-    }
-
-    @Test
-    void givenValidStartDateAndEndDate_whenFindByStartDateAndEndDate_thenReturnEmptyList() {
-        // given
-        String startDate = "2011-10-10";
-        String endDate = "2011-10-11";
-        // when
-        List<Flight> flights = flightRepository.findByStartDateAndEndDate(startDate, endDate);
-        // then
-        assertThat(flights).isEmpty();
-    }
-
-    @Test
-    void givenInvalidStartDateAndValidEndDate_whenFindByStartDateAndEndDate_thenReturnEmptyList() {
-        // given
-        String startDate = "2011-10-10";
-        String endDate = "2011-10-11";
-        Flight flight = new Flight(null, "Flight1", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, true);
-        flightRepository.save(flight);
-        // when
-        List<Flight> flights = flightRepository.findByStartDateAndEndDate(null, endDate);
-        // then
-        assertThat(flights).isEmpty();
-    }
-
-    @Test
-    void givenValidStartDateAndInvalidEndDate_whenFindByStartDateAndEndDate_thenReturnEmptyList() {
-        // given
-        String startDate = "2011-10-10";
-        String endDate = "2011-10-11";
-        Flight flight = new Flight(null, "Flight1", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, true);
-        flightRepository.save(flight);
-        // when
-        List<Flight> flights = flightRepository.findByStartDateAndEndDate(startDate, null);
-        // then
-        assertThat(flights).isEmpty();
-    }
-
-    @Test
-    void givenInvalidStartDateAndInvalidEndDate_whenFindByStartDateAndEndDate_thenReturnEmptyList() {
-        // given
-        String startDate = "2011-10-10";
-        String endDate = "2011-10-11";
-        Flight flight = new Flight(null, "Flight1", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, true);
-        flightRepository.save(flight);
-        // when
-        List<Flight> flights = flightRepository.findByStartDateAndEndDate(null, null);
-        // then
-        assertThat(flights).isEmpty();
-    }
-
     @Test
     void givenValidEndLocation_whenFindByEndLocation_thenReturnFlightsList() {
         // given
@@ -168,4 +102,94 @@ class FlightRepositoryTest {
         // then
         assertThat(flights).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenAllCriteria_whenSearchFlights_thenReturnMatchingFlightsList() {
+        // given
+        flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), Timestamp.valueOf("2011-10-10 12:00:00"), "Location1", "Location2", true),
+                new Flight(null, "Flight2", 30.5, Timestamp.valueOf("2011-10-10 10:00:00"), Timestamp.valueOf("2011-10-10 12:00:00"), "Location1", "Location2", true),
+                new Flight(null, "Flight3", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), Timestamp.valueOf("2011-10-10 12:00:00"), "Location1", "Location2", false),
+                new Flight(null, "Flight4", 10.5, Timestamp.valueOf("2011-10-12 10:00:00"), Timestamp.valueOf("2011-10-12 12:00:00"), "Location1", "Location2", true),
+                new Flight(null, "Flight5", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), Timestamp.valueOf("2011-10-10 12:00:00"), "Location1", "Location3", true)
+        ));
+        // when
+        List<FlightResponseDto> flights = flightRepository.searchFlights(
+                "Location1",
+                "Location2",
+                Timestamp.valueOf("2011-10-10 00:00:00"),
+                Timestamp.valueOf("2011-10-11 00:00:00"),
+                5.0,
+                20.0,
+                true,
+                null,
+                null,
+                PageRequest.of(0, 10)
+        );
+        // then
+        assertThat(flights)
+                .hasSize(1)
+                .allMatch(el -> el.name().equals("Flight1"));
+    }
+
+    @Test
+    void givenOnlyStartLocation_whenSearchFlights_thenIgnoreOtherCriteria() {
+        // given
+        flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf("2011-10-11 10:00:00"), null, "Location1", null, true),
+                new Flight(null, "Flight2", 30.5, Timestamp.valueOf("2011-10-10 10:00:00"), null, "Location1", "Location2", false),
+                new Flight(null, "Flight3", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), null, "Location2", null, true)
+        ));
+        // when
+        List<FlightResponseDto> flights = flightRepository.searchFlights("Location1", null, null, null, null, null, false, null, null, PageRequest.of(0, 10));
+        // then
+        assertThat(flights)
+                .hasSize(2)
+                .extracting(FlightResponseDto::name)
+                .containsExactly("Flight2", "Flight1");
+    }
+
+    @Test
+    void givenCursor_whenFindPageByStartLocation_thenReturnNextPageInKeysetOrder() {
+        // given
+        String startLocation = "Location1";
+        Timestamp sameStartDate = Timestamp.valueOf("2011-10-10 10:00:00");
+        List<Flight> saved = flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, sameStartDate, null, startLocation, null, true),
+                new Flight(null, "Flight2", 10.5, sameStartDate, null, startLocation, null, true),
+                new Flight(null, "Flight3", 10.5, Timestamp.valueOf("2011-10-09 10:00:00"), null, startLocation, null, true),
+                new Flight(null, "Flight4", 10.5, Timestamp.valueOf("2011-10-11 10:00:00"), null, startLocation, null, false),
+                new Flight(null, "Flight5", 10.5, Timestamp.valueOf("2011-10-12 10:00:00"), null, startLocation, null, true)
+        ));
+        // when
+        List<FlightResponseDto> firstPage = flightRepository.findPageByStartLocation(startLocation, true, null, null, PageRequest.of(0, 2));
+        FlightResponseDto last = firstPage.get(firstPage.size() - 1);
+        List<FlightResponseDto> secondPage = flightRepository.findPageByStartLocation(startLocation, true, last.startDate(), last.id(), PageRequest.of(0, 2));
+        // then
+        assertThat(saved).hasSize(5);
+        assertThat(firstPage)
+                .extracting(FlightResponseDto::name)
+                .containsExactly("Flight3", "Flight1");
+        assertThat(secondPage)
+                .extracting(FlightResponseDto::name)
+                .containsExactly("Flight2", "Flight5");
+    }
+
+    @Test
+    void givenValidStartDateAndEndDate_whenFindPageByStartDateAndEndDate_thenReturnFlightsPage() {
+        // given
+        flightRepository.saveAll(List.of(
+                new Flight(null, "Flight1", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), Timestamp.valueOf("2011-10-11 10:00:00"), "Location1", null, true),
+                new Flight(null, "Flight2", 10.5, Timestamp.valueOf("2011-10-10 11:00:00"), Timestamp.valueOf("2011-10-11 11:00:00"), "Location1", null, true),
+                new Flight(null, "Flight3", 10.5, Timestamp.valueOf("2011-10-10 12:00:00"), Timestamp.valueOf("2011-10-12 12:00:00"), "Location1", null, true)
+        ));
+        // when
+        List<FlightResponseDto> flights = flightRepository.findPageByStartDateAndEndDate("2011-10-10", "2011-10-11", false, null, null, PageRequest.of(0, 1));
+        List<FlightResponseDto> invalid = flightRepository.findPageByStartDateAndEndDate("", "2011-10-11", false, null, null, PageRequest.of(0, 1));
+        // then
+        assertThat(flights)
+                .extracting(FlightResponseDto::name)
+                .containsExactly("Flight1");
+        assertThat(invalid).isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+package dev.peter.flightbooking.security;
+
+import dev.peter.flightbooking.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CountDownLatch started;
+
+    private CountDownLatch release;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        passwordEncoder.destroy();
+    }
+
+    // encodes only after release, so hashes pile up on the single thread
+    private PasswordEncoder blockingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed-" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals("hashed-" + rawPassword);
+            }
+        };
+    }
+
+    private BoundedPasswordEncoder passwordEncoder(int maxQueue, Duration timeout) {
+        return new BoundedPasswordEncoder(
+                blockingEncoder(),
+                new PasswordHashingProperties(4, 1, maxQueue, timeout, Duration.ofSeconds(1)),
+                meterRegistry
+        );
+    }
+
+    @Test
+    void givenFreeThread_whenEncode_thenReturnHashFromPool() {
+        // given
+        passwordEncoder = passwordEncoder(1, Duration.ofSeconds(5));
+        release.countDown();
+
+        // when
+        String hash = passwordEncoder.encode("password");
+
+        // then
+        assertThat(hash).isEqualTo("hashed-password");
+        assertThat(passwordEncoder.matches("password", hash)).isTrue();
+    }
+
+    @Test
+    void givenBusyThreadAndFullQueue_whenEncode_thenRejectWithRetryAfter() throws InterruptedException {
+        // given
+        passwordEncoder = passwordEncoder(1, Duration.ofSeconds(5));
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("first"));
+        assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("second"));
+        while (meterRegistry.get("executor.queued").tag("name", "password.hashing").gauge().value() < 1) {
+            Thread.sleep(10);
+        }
+
+        // when
+        // then
+        assertThatThrownBy(() -> passwordEncoder.encode("third"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meterRegistry.counter("password.hashing.rejected").count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.join()).isEqualTo("hashed-first");
+        assertThat(queued.join()).isEqualTo("hashed-second");
+    }
+
+    @Test
+    void givenHashTakingLongerThanTimeout_whenEncode_thenReject() {
+        // given
+        passwordEncoder = passwordEncoder(1, Duration.ofMillis(100));
+
+        // when
+        // then
+        assertThatThrownBy(() -> passwordEncoder.encode("password"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
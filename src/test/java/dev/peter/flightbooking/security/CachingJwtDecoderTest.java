@@ -0,0 +1,111 @@
+package dev.peter.flightbooking.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2030-10-10T10:00:00Z");
+
+    private JwtDecoder delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private CachingJwtDecoder decoder(Instant now) {
+        return new CachingJwtDecoder(delegate, 100, meterRegistry, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("client")
+                .issuedAt(NOW.minusSeconds(60))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void givenDecodedToken_whenDecodeAgain_thenReturnCachedJwt() {
+        // given
+        Jwt jwt = jwt("token", NOW.plusSeconds(300));
+        when(delegate.decode("token")).thenReturn(jwt);
+        CachingJwtDecoder decoder = decoder(NOW);
+        decoder.decode("token");
+
+        // when
+        Jwt decoded = decoder.decode("token");
+
+        // then
+        assertThat(decoded).isSameAs(jwt);
+        verify(delegate, times(1)).decode("token");
+        assertThat(meterRegistry.counter("security.jwt.cache", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenExpiredCachedToken_whenDecode_thenValidateAgain() {
+        // given
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        when(delegate.decode("token")).thenReturn(jwt("token", NOW.plusSeconds(300)));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, meterRegistry, clock);
+        decoder.decode("token");
+        when(clock.instant()).thenReturn(NOW.plusSeconds(301));
+        when(delegate.decode("token")).thenThrow(new BadJwtException("Jwt expired"));
+
+        // when
+        // then
+        assertThatThrownBy(() -> decoder.decode("token"))
+                .isInstanceOf(BadJwtException.class);
+        verify(delegate, times(2)).decode("token");
+    }
+
+    @Test
+    void givenInvalidToken_whenDecodeTwice_thenValidateBothTimes() {
+        // given
+        when(delegate.decode("invalid")).thenThrow(new BadJwtException("Invalid signature"));
+        CachingJwtDecoder decoder = decoder(NOW);
+
+        // when
+        assertThatThrownBy(() -> decoder.decode("invalid")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("invalid")).isInstanceOf(BadJwtException.class);
+
+        // then
+        verify(delegate, times(2)).decode("invalid");
+    }
+
+    @Test
+    void givenTokenWithoutExpiry_whenDecodeTwice_thenValidateBothTimes() {
+        // given
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("client").build();
+        when(delegate.decode("token")).thenReturn(jwt);
+        CachingJwtDecoder decoder = decoder(NOW);
+
+        // when
+        decoder.decode("token");
+        decoder.decode("token");
+
+        // then
+        verify(delegate, times(2)).decode("token");
+    }
+}
@@ -0,0 +1,109 @@
+package dev.peter.flightbooking.service;
+
+import dev.peter.flightbooking.cache.FlightCacheKeys;
+import dev.peter.flightbooking.cache.PopularCacheKeys;
+import dev.peter.flightbooking.config.CacheWarmUpProperties;
+import dev.peter.flightbooking.controller.EncodedResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmUpServiceTest {
+
+    private CacheWarmUpService cacheWarmUpService;
+
+    @Mock
+    private FlightService flightService;
+
+    @Mock
+    private PopularCacheKeys popularCacheKeys;
+
+    @Mock
+    private EncodedResponseCache encodedResponseCache;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        cacheWarmUpService = new CacheWarmUpService(
+                flightService,
+                popularCacheKeys,
+                encodedResponseCache,
+                new CacheWarmUpProperties(true, 10, 4, Duration.ofSeconds(10), Duration.ofMinutes(1), 1000,
+                        List.of("Location1"), List.of(), List.of("2030-10-10T00:00:00/2030-10-11T00:00:00")),
+                meterRegistry
+        );
+    }
+
+    @Test
+    void givenConfiguredAndPopularKeys_whenWarmUp_thenLoadEachKeyOnce() {
+        // given
+        given(popularCacheKeys.top(CacheWarmUpService.START_LOCATION_CACHE, 10)).willReturn(List.of(
+                List.of("Location1", "", ""),
+                List.of("Location2", "true", "20")
+        ));
+        given(popularCacheKeys.top(CacheWarmUpService.END_LOCATION_CACHE, 10)).willReturn(List.of());
+        given(popularCacheKeys.top(CacheWarmUpService.TIME_FRAME_CACHE, 10)).willReturn(List.of());
+
+        // when
+        cacheWarmUpService.warmUp();
+
+        // then
+        verify(flightService, times(1)).getFLightsByStartLocation("Location1", false, null, null);
+        verify(flightService, times(1)).getFLightsByStartLocation("Location2", true, null, 20);
+        verify(flightService, times(1)).getFLightsByTimeFrame("2030-10-10T00:00:00", "2030-10-11T00:00:00", false, null, null);
+        assertThat(meterRegistry.counter("cache.warm.up.keys", "result", "loaded").count()).isEqualTo(3);
+        assertThat(meterRegistry.timer("cache.warm.up").count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenRouteWithoutFlightsAndUnreadableHitCounts_whenWarmUp_thenCountFailureAndWarmConfiguredKeys() {
+        // given
+        given(popularCacheKeys.top(anyString(), anyInt())).willThrow(new IllegalStateException("Redis unavailable"));
+        given(flightService.getFLightsByStartLocation(eq("Location1"), anyBoolean(), isNull(), isNull()))
+                .willThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Flights not found"));
+
+        // when
+        cacheWarmUpService.warmUp();
+
+        // then
+        verify(flightService).getFLightsByTimeFrame("2030-10-10T00:00:00", "2030-10-11T00:00:00", false, null, null);
+        assertThat(meterRegistry.counter("cache.warm.up.keys", "result", "loaded").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("cache.warm.up.keys", "result", "failed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenResponseCacheEnabled_whenWarmUp_thenWarmResponseCacheUnderRequestKey() {
+        // given
+        given(encodedResponseCache.isEnabled()).willReturn(true);
+        given(popularCacheKeys.top(CacheWarmUpService.START_LOCATION_CACHE, 10)).willReturn(List.of(
+                List.of("Location2", "true", "20")
+        ));
+        given(popularCacheKeys.top(CacheWarmUpService.END_LOCATION_CACHE, 10)).willReturn(List.of());
+        given(popularCacheKeys.top(CacheWarmUpService.TIME_FRAME_CACHE, 10)).willReturn(List.of());
+
+        // when
+        cacheWarmUpService.warmUp();
+
+        // then
+        verify(encodedResponseCache).warm(eq("/v1/api/flights{startLocation=Location1}"), eq(FlightCacheKeys.startLocationRoute("Location1")), any());
+        verify(encodedResponseCache).warm(eq("/v1/api/flights{filterUnavailable=true, size=20, startLocation=Location2}"), eq(FlightCacheKeys.startLocationRoute("Location2")), any());
+        verify(encodedResponseCache).warm(eq("/v1/api/flights{endDate=2030-10-11T00:00:00, startDate=2030-10-10T00:00:00}"), eq(FlightCacheKeys.ALL_FLIGHTS), any());
+    }
+}
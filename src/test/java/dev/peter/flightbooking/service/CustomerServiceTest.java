@@ -1,19 +1,23 @@
 package dev.peter.flightbooking.service;
 
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
 import dev.peter.flightbooking.dto.*;
+import dev.peter.flightbooking.event.FlightChangedEvent;
 import dev.peter.flightbooking.model.Customer;
 import dev.peter.flightbooking.model.Flight;
 import dev.peter.flightbooking.model.Role;
 import dev.peter.flightbooking.repository.CustomerRepository;
 import dev.peter.flightbooking.repository.FlightRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -24,8 +28,11 @@ import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,12 +46,36 @@ class CustomerServiceTest {
     @Mock
     private FlightRepository flightRepository;
 
+    @Mock
+    private FlightCacheInvalidator flightCacheInvalidator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache secondLevelCache;
+
     private PasswordEncoder passwordEncoder;
 
     @BeforeEach
     void setUp() {
-        passwordEncoder = NoOpPasswordEncoder.getInstance(); //dummy password encoder
-        customerService = new CustomerService(customerRepository, flightRepository, passwordEncoder);
+        //dummy password encoder, stores passwords as they are
+        passwordEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        lenient().when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        customerService = new CustomerService(customerRepository, flightRepository, passwordEncoder, flightCacheInvalidator, eventPublisher, entityManagerFactory);
     }
 
     @Test
@@ -244,37 +275,116 @@ class CustomerServiceTest {
     }
 
     @Test
-    void givenValidIdAndFlightId_whenBookCustomerFlight_thenReturnBookingDtoAndShouldUpdateBookedFlights() {
+    void givenValidIdAndFlightId_whenBookCustomerFlight_thenInsertSingleBookingAndReturnBookedFlight() {
         // given
         Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true);
-        Customer customer = new Customer(1 , "username", "", Role.USER, new HashSet<>(Set.of(flight)));
         CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(flight.getId());
 
-        given(customerRepository.findById(1)).willReturn(Optional.of(customer));
+        given(customerRepository.existsById(1)).willReturn(true);
         given(flightRepository.findById(1)).willReturn(Optional.of(flight));
+        given(customerRepository.insertBooking(1, 1)).willReturn(1);
+        given(customerRepository.findBookedFlightsByCustomerId(1)).willReturn(Set.of(flight));
 
         // when
         CustomerBookingResponseDto bookingDto = customerService.bookCustomerFlight(1, bookingRequest);
         // then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerRepository).insertBooking(1, 1);
+        verify(customerRepository, never()).findById(anyInt());
+        verify(customerRepository, never()).save(any());
+        verify(flightRepository, never()).reserveSeat(anyInt());
 
-        Customer capturedCustomer = customerArgumentCaptor.getValue();
+        assertThat(bookingDto).hasFieldOrPropertyWithValue("bookedFlights", Set.of(flight));
+    }
+
+    @Test
+    void givenAlreadyBookedFlight_whenBookCustomerFlight_thenSkipInsert() {
+        // given
+        Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true, 10, 5);
+        CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(flight.getId());
+
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.findById(1)).willReturn(Optional.of(flight));
+        given(customerRepository.countBooking(1, 1)).willReturn(1L);
+        given(customerRepository.findBookedFlightsByCustomerId(1)).willReturn(Set.of(flight));
+
+        // when
+        CustomerBookingResponseDto bookingDto = customerService.bookCustomerFlight(1, bookingRequest);
+        // then
+        verify(customerRepository, never()).insertBooking(anyInt(), anyInt());
+        verify(flightRepository, never()).reserveSeat(anyInt());
+        assertThat(bookingDto).hasFieldOrPropertyWithValue("bookedFlights", Set.of(flight));
+    }
 
-        assertThat(capturedCustomer).hasFieldOrPropertyWithValue("bookedFlights", Set.of(flight));
+    @Test
+    void givenFlightWithSeats_whenBookCustomerFlight_thenReserveSeat() {
+        // given
+        Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true, 10, 1);
+        CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(flight.getId());
+
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.findById(1)).willReturn(Optional.of(flight));
+        given(flightRepository.reserveSeat(1)).willReturn(1);
+        given(customerRepository.insertBooking(1, 1)).willReturn(1);
+        given(customerRepository.findBookedFlightsByCustomerId(1)).willReturn(Set.of(flight));
+
+        // when
+        CustomerBookingResponseDto bookingDto = customerService.bookCustomerFlight(1, bookingRequest);
+        // then
+        verify(flightRepository).reserveSeat(1);
+        verify(flightRepository, never()).releaseSeat(anyInt());
+        verify(secondLevelCache).evict(Flight.class, 1);
+        verify(flightCacheInvalidator).seatsChanged(flight);
+        verify(eventPublisher).publishEvent(FlightChangedEvent.seatsChanged(flight));
         assertThat(bookingDto).hasFieldOrPropertyWithValue("bookedFlights", Set.of(flight));
     }
 
+    @Test
+    void givenConcurrentDuplicateBooking_whenBookCustomerFlight_thenReleaseReservedSeat() {
+        // given
+        Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true, 10, 5);
+        CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(flight.getId());
+
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.findById(1)).willReturn(Optional.of(flight));
+        given(flightRepository.reserveSeat(1)).willReturn(1);
+        given(customerRepository.insertBooking(1, 1)).willReturn(0);
+
+        // when
+        customerService.bookCustomerFlight(1, bookingRequest);
+        // then
+        verify(flightRepository).releaseSeat(1);
+        verify(flightCacheInvalidator, never()).seatsChanged(any());
+    }
+
+    @Test
+    void givenSoldOutFlight_whenBookCustomerFlight_thenThrowException() {
+        // given
+        Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true, 10, 0);
+        CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(flight.getId());
+
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.findById(1)).willReturn(Optional.of(flight));
+        given(flightRepository.reserveSeat(1)).willReturn(0);
+
+        // when
+        // then
+        assertThatThrownBy(() -> customerService.bookCustomerFlight(1, bookingRequest))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Flight sold out")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.CONFLICT);
+        verify(customerRepository, never()).insertBooking(anyInt(), anyInt());
+    }
+
     @Test
     void givenInvalidIdAndFlightId_whenBookCustomerFlight_thenThrowException() {
         // given
         CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(1);
 
-        given(customerRepository.findById(anyInt())).willReturn(Optional.empty());
+        given(customerRepository.existsById(anyInt())).willReturn(false);
 
         // when
         // then
-        assertThatThrownBy(() -> customerService.bookCustomerFlight(anyInt(), bookingRequest))
+        assertThatThrownBy(() -> customerService.bookCustomerFlight(1, bookingRequest))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Customer not found");
     }
@@ -282,15 +392,14 @@ class CustomerServiceTest {
     @Test
     void givenValidIdAndInvalidFlightId_whenBookCustomerFlight_thenThrowException() {
         // given
-        Customer customer = new Customer(1 , "username", "", Role.USER, new HashSet<>(Set.of()));
         CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(1);
 
-        given(customerRepository.findById(anyInt())).willReturn(Optional.of(customer));
+        given(customerRepository.existsById(anyInt())).willReturn(true);
         given(flightRepository.findById(anyInt())).willReturn(Optional.empty());
 
         // when
         // then
-        assertThatThrownBy(() -> customerService.bookCustomerFlight(anyInt(), bookingRequest))
+        assertThatThrownBy(() -> customerService.bookCustomerFlight(1, bookingRequest))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Flights not found");
     }
@@ -300,40 +409,68 @@ class CustomerServiceTest {
         // given
         CustomerBookingRequestDto bookingRequest = new CustomerBookingRequestDto(1);
 
-        given(customerRepository.findById(anyInt())).willReturn(Optional.empty());
+        given(customerRepository.existsById(anyInt())).willReturn(false);
 
         // when
         // then
-        assertThatThrownBy(() -> customerService.bookCustomerFlight(anyInt(), bookingRequest))
+        assertThatThrownBy(() -> customerService.bookCustomerFlight(1, bookingRequest))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Customer not found");
     }
 
     @Test
-    void givenValidIdAndFlightId_whenDeleteBookedCustomerFlight_thenRemoveFromFlightsSet() {
+    void givenValidIdAndFlightId_whenDeleteBookedCustomerFlight_thenDeleteSingleBookingAndReleaseSeat() {
         // given
-        Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true);
-        Customer customer = new Customer(1 , "username", "", Role.USER, new HashSet<>(Set.of(flight)));
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.existsById(1)).willReturn(true);
+        given(customerRepository.deleteBooking(1, 1)).willReturn(1);
 
-        given(customerRepository.findById(anyInt())).willReturn(Optional.of(customer));
-        given(flightRepository.findById(anyInt())).willReturn(Optional.of(flight));
+        // when
+        customerService.deleteBookedCustomerFlight(1, 1);
+
+        // then
+        verify(customerRepository).deleteBooking(1, 1);
+        verify(flightRepository).releaseSeat(1);
+        verify(customerRepository, never()).save(any());
+    }
+
+    @Test
+    void givenFlightWithSeats_whenDeleteBookedCustomerFlight_thenInvalidateFlightRoutes() {
+        // given
+        Flight flight = new Flight(1, "flight1", 10.5, Timestamp.valueOf("2010-10-10 00:00:00"), null, "start", null, true, 10, 5);
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.existsById(1)).willReturn(true);
+        given(customerRepository.deleteBooking(1, 1)).willReturn(1);
+        given(flightRepository.releaseSeat(1)).willReturn(1);
+        given(flightRepository.findById(1)).willReturn(Optional.of(flight));
 
         // when
         customerService.deleteBookedCustomerFlight(1, 1);
 
         // then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(secondLevelCache).evict(Flight.class, 1);
+        verify(flightCacheInvalidator).seatsChanged(flight);
+        verify(eventPublisher).publishEvent(FlightChangedEvent.seatsChanged(flight));
+    }
 
-        Customer capturedCustomer = customerArgumentCaptor.getValue();
+    @Test
+    void givenNotBookedFlight_whenDeleteBookedCustomerFlight_thenDoNotReleaseSeat() {
+        // given
+        given(customerRepository.existsById(1)).willReturn(true);
+        given(flightRepository.existsById(1)).willReturn(true);
+        given(customerRepository.deleteBooking(1, 1)).willReturn(0);
 
-        assertThat(capturedCustomer.getBookedFlights()).doesNotContain(flight);
+        // when
+        customerService.deleteBookedCustomerFlight(1, 1);
+
+        // then
+        verify(flightRepository, never()).releaseSeat(anyInt());
     }
 
     @Test
     void givenInvalidIdAndFlightId_whenDeleteBookedCustomerFlight_thenThrowException() {
         // given
-        given(customerRepository.findById(anyInt())).willReturn(Optional.empty());
+        given(customerRepository.existsById(anyInt())).willReturn(false);
 
         // when
         // then
@@ -345,10 +482,8 @@ class CustomerServiceTest {
     @Test
     void givenValidIdAndInvalidFlightId_whenDeleteBookedCustomerFlight_thenThrowException() {
         // given
-        Customer customer = new Customer(1 , "username", "", Role.USER, new HashSet<>(Set.of()));
-
-        given(customerRepository.findById(anyInt())).willReturn(Optional.of(customer));
-        given(flightRepository.findById(anyInt())).willReturn(Optional.empty());
+        given(customerRepository.existsById(anyInt())).willReturn(true);
+        given(flightRepository.existsById(anyInt())).willReturn(false);
 
         // when
         // then
@@ -360,7 +495,7 @@ class CustomerServiceTest {
     @Test
     void givenInvalidIdAndInvalidFlightId_whenDeleteBookedCustomerFlight_thenThrowException() {
         // given
-        given(customerRepository.findById(anyInt())).willReturn(Optional.empty());
+        given(customerRepository.existsById(anyInt())).willReturn(false);
 
         // when
         // then
@@ -368,4 +503,4 @@ class CustomerServiceTest {
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Customer not found");
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,22 @@
 package dev.peter.flightbooking.service;
 
+import dev.peter.flightbooking.cache.CacheLease;
+import dev.peter.flightbooking.cache.FlightCacheInvalidator;
+import dev.peter.flightbooking.cache.LoadGuard;
+import dev.peter.flightbooking.cache.SingleFlightCacheLoader;
+import dev.peter.flightbooking.cache.StaleCacheFallback;
+import dev.peter.flightbooking.config.FlightPaginationProperties;
+import dev.peter.flightbooking.config.CacheTtlProperties;
+import dev.peter.flightbooking.config.RefreshAheadProperties;
+import dev.peter.flightbooking.config.SingleFlightProperties;
+import dev.peter.flightbooking.dto.FlightPageResponseDto;
 import dev.peter.flightbooking.dto.FlightRequestDto;
 import dev.peter.flightbooking.dto.FlightResponseDto;
+import dev.peter.flightbooking.event.FlightChangedEvent;
 import dev.peter.flightbooking.model.Flight;
 import dev.peter.flightbooking.repository.FlightRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -14,10 +27,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +45,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,13 +56,39 @@ class FlightServiceTest {
     @Mock
     private FlightRepository flightRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private FlightCacheInvalidator flightCacheInvalidator;
+
     @Autowired
     private CacheManager cacheManager;
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     @BeforeEach
     void setUp() {
         cacheManager = new NoOpCacheManager(); //dummy cache manager
-        flightService = new FlightService(flightRepository, cacheManager);
+        flightService = new FlightService(
+                flightRepository,
+                new StaleCacheFallback(
+                        cacheManager,
+                        new SingleFlightCacheLoader(cacheManager, CacheLease.LOCAL, new SingleFlightProperties(Duration.ofSeconds(10), Duration.ofMillis(50)), new CacheTtlProperties(Duration.ofMinutes(60), Map.of()), new RefreshAheadProperties(false, 0.2, 3), new SimpleMeterRegistry()),
+                        CircuitBreakerRegistry.ofDefaults(),
+                        new SimpleMeterRegistry()
+                ),
+                flightCacheInvalidator,
+                new FlightPaginationProperties(DEFAULT_PAGE_SIZE, 500),
+                eventPublisher
+        );
+        // pages are not cached here, only the loaders matter
+        lenient().when(flightCacheInvalidator.guard(anyString(), anyString(), anyString())).thenReturn(LoadGuard.NONE);
+    }
+
+    // page queries return dtos projected by the database
+    private static List<FlightResponseDto> responseDtos(List<Flight> flights) {
+        return flights.stream().map(FlightService::mapToResponseDto).toList();
     }
 
     @Test
@@ -57,17 +101,19 @@ class FlightServiceTest {
                 new Flight(2, "Flight2", 10.5, null, null, startLocation, null, false)
         );
 
-        given(flightRepository.findByStartLocation(startLocation)).willReturn(flights);
+        given(flightRepository.findPageByStartLocation(eq(startLocation), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
         // when
-        List<FlightResponseDto> expected = flightService.getFLightsByStartLocation(startLocation, false);
+        FlightPageResponseDto page = flightService.getFLightsByStartLocation(startLocation, false, null, null);
+        List<FlightResponseDto> expected = page.flights();
         // then
-        verify(flightRepository).findByStartLocation(startLocation);
+        verify(flightRepository).findPageByStartLocation(startLocation, false, null, null, PageRequest.of(0, DEFAULT_PAGE_SIZE + 1));
 
         // Convert output list to map in order to execute assertions with indexes
         Map<Integer, FlightResponseDto> flightMap = IntStream.range(0, expected.size())
                 .boxed()
                 .collect(toMap(i -> i, expected::get));
 
+        assertThat(page.nextCursor()).isNull();
         assertThat(flightMap)
                 .hasSize(2)
                 .allSatisfy((index, flight) -> assertThat(flight)
@@ -81,20 +127,19 @@ class FlightServiceTest {
     }
 
     @Test
-    void givenValidStartLocationAndFiltered_whenGetFLightsByStartLocation_thenReturnFlightsDtoList() {
+    void givenValidStartLocationAndFiltered_whenGetFLightsByStartLocation_thenQueryAvailableFlightsOnly() {
         // given
         String startLocation = "Location1";
 
         List<Flight> flights = List.of(
-                new Flight(1, "Flight1", 10.5, null, null, startLocation, null, true),
-                new Flight(2, "Flight2", 10.5, null, null, startLocation, null, false)
+                new Flight(1, "Flight1", 10.5, null, null, startLocation, null, true)
         );
 
-        given(flightRepository.findByStartLocation(startLocation)).willReturn(flights);
+        given(flightRepository.findPageByStartLocation(eq(startLocation), eq(true), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
         // when
-        List<FlightResponseDto> expected = flightService.getFLightsByStartLocation(startLocation, true);
+        List<FlightResponseDto> expected = flightService.getFLightsByStartLocation(startLocation, true, null, null).flights();
         // then
-        verify(flightRepository).findByStartLocation(startLocation);
+        verify(flightRepository).findPageByStartLocation(eq(startLocation), eq(true), isNull(), isNull(), any(Pageable.class));
 
         assertThat(expected)
                 .hasSize(1)
@@ -106,13 +151,67 @@ class FlightServiceTest {
                 );
     }
 
+    @Test
+    void givenMoreFlightsThanPageSize_whenGetFLightsByStartLocation_thenReturnPageWithNextCursor() {
+        // given
+        String startLocation = "Location1";
+
+        List<Flight> flights = List.of(
+                new Flight(1, "Flight1", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), null, startLocation, null, true),
+                new Flight(2, "Flight2", 10.5, Timestamp.valueOf("2011-10-10 11:00:00"), null, startLocation, null, true),
+                new Flight(3, "Flight3", 10.5, Timestamp.valueOf("2011-10-10 12:00:00"), null, startLocation, null, true)
+        );
+
+        given(flightRepository.findPageByStartLocation(startLocation, false, null, null, PageRequest.of(0, 3))).willReturn(responseDtos(flights));
+        // when
+        FlightPageResponseDto page = flightService.getFLightsByStartLocation(startLocation, false, null, 2);
+        // then
+        assertThat(page.flights())
+                .hasSize(2)
+                .extracting(FlightResponseDto::id)
+                .containsExactly(1, 2);
+        assertThat(FlightCursor.decode(page.nextCursor()))
+                .isEqualTo(new FlightCursor(flights.get(1).getStartDate(), flights.get(1).getId()));
+    }
+
+    @Test
+    void givenCursor_whenGetFLightsByStartLocation_thenQueryRowsAfterCursor() {
+        // given
+        String startLocation = "Location1";
+        FlightCursor cursor = new FlightCursor(Timestamp.valueOf("2011-10-10 11:00:00"), 2);
+
+        List<Flight> flights = List.of(
+                new Flight(3, "Flight3", 10.5, Timestamp.valueOf("2011-10-10 12:00:00"), null, startLocation, null, true)
+        );
+
+        given(flightRepository.findPageByStartLocation(startLocation, false, cursor.startDate(), cursor.id(), PageRequest.of(0, 3))).willReturn(responseDtos(flights));
+        // when
+        FlightPageResponseDto page = flightService.getFLightsByStartLocation(startLocation, false, cursor.encode(), 2);
+        // then
+        assertThat(page.flights()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void givenInvalidCursorOrPageSize_whenGetFLightsByStartLocation_thenThrowException() {
+        // given
+        // when
+        // then
+        assertThatThrownBy(() -> flightService.getFLightsByStartLocation("Location1", false, "not-a-cursor", null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> flightService.getFLightsByStartLocation("Location1", false, null, 0))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     void givenInvalidStartLocation_whenGetFLightsByStartLocation_thenThrowException() {
         // given
-        given(flightRepository.findByStartLocation(anyString())).willReturn(List.of());
+        given(flightRepository.findPageByStartLocation(anyString(), anyBoolean(), any(), any(), any(Pageable.class))).willReturn(List.of());
         // when
         // then
-        assertThatThrownBy(() -> flightService.getFLightsByStartLocation(anyString(), false))
+        assertThatThrownBy(() -> flightService.getFLightsByStartLocation("Location1", false, null, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Flights not found")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
@@ -128,11 +227,11 @@ class FlightServiceTest {
                 new Flight(2, "Flight2", 10.5, null, null, "Location1", endLocation, false)
         );
 
-        given(flightRepository.findByEndLocation(endLocation)).willReturn(flights);
+        given(flightRepository.findPageByEndLocation(eq(endLocation), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
         // when
-        List<FlightResponseDto> expected = flightService.getFLightsByEndLocation(endLocation, false);
+        List<FlightResponseDto> expected = flightService.getFLightsByEndLocation(endLocation, false, null, null).flights();
         // then
-        verify(flightRepository).findByEndLocation(endLocation);
+        verify(flightRepository).findPageByEndLocation(endLocation, false, null, null, PageRequest.of(0, DEFAULT_PAGE_SIZE + 1));
 
         // Convert output list to map in order to execute assertions with indexes
         Map<Integer, FlightResponseDto> flightMap = IntStream.range(0, expected.size())
@@ -153,20 +252,19 @@ class FlightServiceTest {
     }
 
     @Test
-    void givenValidEndLocationAndFiltered_whenGetFLightsByEndLocation_thenReturnFlightsDtoList() {
+    void givenValidEndLocationAndFiltered_whenGetFLightsByEndLocation_thenQueryAvailableFlightsOnly() {
         // given
         String endLocation = "Location2";
 
         List<Flight> flights = List.of(
-                new Flight(1, "Flight1", 10.5, null, null, "Location1", endLocation, true),
-                new Flight(2, "Flight2", 10.5, null, null, "Location1", endLocation, false)
+                new Flight(1, "Flight1", 10.5, null, null, "Location1", endLocation, true)
         );
 
-        given(flightRepository.findByEndLocation(endLocation)).willReturn(flights);
+        given(flightRepository.findPageByEndLocation(eq(endLocation), eq(true), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
         // when
-        List<FlightResponseDto> expected = flightService.getFLightsByEndLocation(endLocation, true);
+        List<FlightResponseDto> expected = flightService.getFLightsByEndLocation(endLocation, true, null, null).flights();
         // then
-        verify(flightRepository).findByEndLocation(endLocation);
+        verify(flightRepository).findPageByEndLocation(eq(endLocation), eq(true), isNull(), isNull(), any(Pageable.class));
 
         assertThat(expected)
                 .hasSize(1)
@@ -182,10 +280,10 @@ class FlightServiceTest {
     @Test
     void givenInvalidEndLocation_whenGetFLightsByEndLocation_thenThrowException() {
         // given
-        given(flightRepository.findByEndLocation(anyString())).willReturn(List.of());
+        given(flightRepository.findPageByEndLocation(anyString(), anyBoolean(), any(), any(), any(Pageable.class))).willReturn(List.of());
         // when
         // then
-        assertThatThrownBy(() -> flightService.getFLightsByEndLocation(anyString(), false))
+        assertThatThrownBy(() -> flightService.getFLightsByEndLocation("Location2", false, null, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Flights not found")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
@@ -202,11 +300,11 @@ class FlightServiceTest {
                 new Flight(2, "Flight2", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, false)
         );
 
-        given(flightRepository.findByStartDateAndEndDate(startDate, endDate)).willReturn(flights);
+        given(flightRepository.findPageByStartDateAndEndDate(eq(startDate), eq(endDate), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
         // when
-        List<FlightResponseDto> expected = flightService.getFLightsByTimeFrame(startDate, endDate, false);
+        List<FlightResponseDto> expected = flightService.getFLightsByTimeFrame(startDate, endDate, false, null, null).flights();
         // then
-        verify(flightRepository).findByStartDateAndEndDate(startDate, endDate);
+        verify(flightRepository).findPageByStartDateAndEndDate(startDate, endDate, false, null, null, PageRequest.of(0, DEFAULT_PAGE_SIZE + 1));
 
         // Convert output list to map in order to execute assertions with indexes
         Map<Integer, FlightResponseDto> flightMap = IntStream.range(0, expected.size())
@@ -228,21 +326,20 @@ class FlightServiceTest {
     }
 
     @Test
-    void givenValidStartDateAndValidEndDateAndFiltered_whenGetFLightsByTimeFrame_thenReturnFlightsDtoList() {
+    void givenValidStartDateAndValidEndDateAndFiltered_whenGetFLightsByTimeFrame_thenQueryAvailableFlightsOnly() {
         // given
         String startDate = "2011-10-10";
         String endDate = "2011-11-11";
 
         List<Flight> flights = List.of(
-                new Flight(1, "Flight1", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, true),
-                new Flight(2, "Flight2", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, false)
+                new Flight(1, "Flight1", 10.5, Timestamp.valueOf(startDate + " 00:00:00"), Timestamp.valueOf(endDate + " 00:00:00"), "Location1", null, true)
         );
 
-        given(flightRepository.findByStartDateAndEndDate(startDate, endDate)).willReturn(flights);
+        given(flightRepository.findPageByStartDateAndEndDate(eq(startDate), eq(endDate), eq(true), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
         // when
-        List<FlightResponseDto> expected = flightService.getFLightsByTimeFrame(startDate, endDate, true);
+        List<FlightResponseDto> expected = flightService.getFLightsByTimeFrame(startDate, endDate, true, null, null).flights();
         // then
-        verify(flightRepository).findByStartDateAndEndDate(startDate, endDate);
+        verify(flightRepository).findPageByStartDateAndEndDate(eq(startDate), eq(endDate), eq(true), isNull(), isNull(), any(Pageable.class));
 
         assertThat(expected)
                 .hasSize(1)
@@ -262,10 +359,10 @@ class FlightServiceTest {
         String startDate = "";
         String endDate = "2011-11-11";
 
-        given(flightRepository.findByStartDateAndEndDate(startDate, endDate)).willReturn(List.of());
+        given(flightRepository.findPageByStartDateAndEndDate(eq(startDate), eq(endDate), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(List.of());
         // when
         // then
-        assertThatThrownBy(() -> flightService.getFLightsByTimeFrame(startDate, endDate, false))
+        assertThatThrownBy(() -> flightService.getFLightsByTimeFrame(startDate, endDate, false, null, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Flights not found")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
@@ -277,10 +374,10 @@ class FlightServiceTest {
         String startDate = "2011-10-10";
         String endDate = "";
 
-        given(flightRepository.findByStartDateAndEndDate(startDate, endDate)).willReturn(List.of());
+        given(flightRepository.findPageByStartDateAndEndDate(eq(startDate), eq(endDate), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(List.of());
         // when
         // then
-        assertThatThrownBy(() -> flightService.getFLightsByTimeFrame(startDate, endDate, false))
+        assertThatThrownBy(() -> flightService.getFLightsByTimeFrame(startDate, endDate, false, null, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Flights not found")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
@@ -292,15 +389,103 @@ class FlightServiceTest {
         String startDate = "";
         String endDate = "";
 
-        given(flightRepository.findByStartDateAndEndDate(startDate, endDate)).willReturn(List.of());
+        given(flightRepository.findPageByStartDateAndEndDate(eq(startDate), eq(endDate), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(List.of());
+        // when
+        // then
+        assertThatThrownBy(() -> flightService.getFLightsByTimeFrame(startDate, endDate, false, null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Flights not found")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenSearchCriteria_whenSearchFlights_thenReturnFlightsDtoList() {
+        // given
+        String startLocation = "Location1";
+        String endLocation = "Location2";
+
+        List<Flight> flights = List.of(
+                new Flight(1, "Flight1", 10.5, Timestamp.valueOf("2011-10-10 10:00:00"), Timestamp.valueOf("2011-10-10 12:00:00"), startLocation, endLocation, true)
+        );
+
+        given(flightRepository.searchFlights(
+                startLocation,
+                endLocation,
+                Timestamp.valueOf("2011-10-10 00:00:00"),
+                Timestamp.valueOf("2011-10-12 00:00:00"),
+                5.0,
+                20.0,
+                true,
+                null,
+                null,
+                PageRequest.of(0, DEFAULT_PAGE_SIZE + 1)
+        )).willReturn(responseDtos(flights));
         // when
+        List<FlightResponseDto> expected = flightService.searchFlights(startLocation, endLocation, "2011-10-10", "2011-10-11", 5.0, 20.0, true, null, null).flights();
         // then
-        assertThatThrownBy(() -> flightService.getFLightsByTimeFrame(startDate, endDate, false))
+        assertThat(expected)
+                .hasSize(1)
+                .allMatch(flightResponseDto ->
+                        flightResponseDto.id().equals(flights.get(0).getId())
+                                && flightResponseDto.startLocation().equals(startLocation)
+                                && flightResponseDto.endLocation().equals(endLocation)
+                                && flightResponseDto.isAvailable()
+                );
+    }
+
+    @Test
+    void givenBlankCriteria_whenSearchFlights_thenPassNullCriteriaToRepository() {
+        // given
+        String startLocation = "Location1";
+
+        List<Flight> flights = List.of(
+                new Flight(1, "Flight1", 10.5, null, null, startLocation, null, true)
+        );
+
+        given(flightRepository.searchFlights(eq(startLocation), isNull(), isNull(), isNull(), isNull(), isNull(), eq(false), isNull(), isNull(), any(Pageable.class))).willReturn(responseDtos(flights));
+        // when
+        List<FlightResponseDto> expected = flightService.searchFlights(startLocation, "", "", " ", null, null, false, null, null).flights();
+        // then
+        verify(flightRepository).searchFlights(eq(startLocation), isNull(), isNull(), isNull(), isNull(), isNull(), eq(false), isNull(), isNull(), any(Pageable.class));
+        assertThat(expected).hasSize(1);
+    }
+
+    @Test
+    void givenNoMatchingFlights_whenSearchFlights_thenThrowException() {
+        // given
+        given(flightRepository.searchFlights(any(), any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(Pageable.class))).willReturn(List.of());
+        // when
+        // then
+        assertThatThrownBy(() -> flightService.searchFlights("Location1", null, null, null, null, null, false, null, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Flights not found")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void givenNoCriteria_whenSearchFlights_thenThrowException() {
+        // given
+        // when
+        // then
+        assertThatThrownBy(() -> flightService.searchFlights(null, "", null, "2011-10-10", null, null, false, null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Bad Request")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void givenInvalidDateOrPriceRange_whenSearchFlights_thenThrowException() {
+        // given
+        // when
+        // then
+        assertThatThrownBy(() -> flightService.searchFlights("Location1", null, "10-10-2011", null, null, null, false, null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> flightService.searchFlights("Location1", null, null, null, 20.0, 10.0, false, null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     void givenFlightDto_whenCreateFlight_thenReturnFlightDto() {
         // given
@@ -332,6 +517,7 @@ class FlightServiceTest {
         flightService.deleteFlight(id);
         // then
         verify(flightRepository).delete(flightToDelete);
+        verify(eventPublisher).publishEvent(FlightChangedEvent.deleted(flightToDelete));
     }
 
     @Test
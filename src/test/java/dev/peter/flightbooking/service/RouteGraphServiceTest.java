@@ -0,0 +1,176 @@
+package dev.peter.flightbooking.service;
+
+import dev.peter.flightbooking.config.RouteGraphProperties;
+import dev.peter.flightbooking.dto.ConnectionResponseDto;
+import dev.peter.flightbooking.dto.FlightResponseDto;
+import dev.peter.flightbooking.event.FlightChangedEvent;
+import dev.peter.flightbooking.model.Flight;
+import dev.peter.flightbooking.repository.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class RouteGraphServiceTest {
+
+    private RouteGraphService routeGraphService;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @BeforeEach
+    void setUp() {
+        routeGraphService = new RouteGraphService(flightRepository, new RouteGraphProperties(Duration.ofMinutes(45), Duration.ofHours(24), 3, 10));
+        given(flightRepository.findAll()).willReturn(List.of(
+                new Flight(1, "Direct", 500.0, Timestamp.valueOf("2030-10-10 08:00:00"), Timestamp.valueOf("2030-10-10 12:00:00"), "A", "C", true),
+                new Flight(2, "FirstLeg", 100.0, Timestamp.valueOf("2030-10-10 06:00:00"), Timestamp.valueOf("2030-10-10 08:00:00"), "A", "B", true),
+                new Flight(3, "SecondLeg", 100.0, Timestamp.valueOf("2030-10-10 10:00:00"), Timestamp.valueOf("2030-10-10 14:00:00"), "B", "C", true),
+                new Flight(4, "TightLeg", 50.0, Timestamp.valueOf("2030-10-10 08:15:00"), Timestamp.valueOf("2030-10-10 09:00:00"), "B", "C", true),
+                new Flight(5, "Return", 50.0, Timestamp.valueOf("2030-10-10 09:00:00"), Timestamp.valueOf("2030-10-10 10:00:00"), "B", "A", true)
+        ));
+        routeGraphService.rebuild();
+    }
+
+    private static List<Integer> flightIds(ConnectionResponseDto connection) {
+        return connection.flights().stream().map(FlightResponseDto::id).toList();
+    }
+
+    @Test
+    void givenCheapestSort_whenFindConnections_thenReturnTwoLegItineraryFirst() {
+        // given
+        String startDate = "2030-10-10";
+        // when
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", startDate, null, null, RouteGraphService.ConnectionSort.CHEAPEST, false);
+        // then
+        assertThat(connections).hasSize(2);
+        assertThat(flightIds(connections.get(0))).containsExactly(2, 3);
+        assertThat(connections.get(0).totalPrice()).isEqualTo(200.0);
+        assertThat(connections.get(0).durationMinutes()).isEqualTo(480L);
+        assertThat(flightIds(connections.get(1))).containsExactly(1);
+    }
+
+    @Test
+    void givenFastestSort_whenFindConnections_thenReturnDirectFlightFirst() {
+        // given
+        String startDate = "2030-10-10";
+        // when
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", startDate, null, null, RouteGraphService.ConnectionSort.FASTEST, false);
+        // then
+        assertThat(flightIds(connections.get(0))).containsExactly(1);
+        assertThat(connections.get(0).durationMinutes()).isEqualTo(240L);
+    }
+
+    @Test
+    void givenShortMinLayover_whenFindConnections_thenIncludeTightConnection() {
+        // given
+        Integer minLayover = 15;
+        // when
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", "2030-10-10", minLayover, null, RouteGraphService.ConnectionSort.CHEAPEST, false);
+        // then
+        assertThat(flightIds(connections.get(0))).containsExactly(2, 4);
+        assertThat(connections).hasSize(3);
+    }
+
+    @Test
+    void givenSingleLegLimit_whenFindConnections_thenReturnOnlyDirectFlight() {
+        // given
+        Integer maxLegs = 1;
+        // when
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", "2030-10-10", null, maxLegs, RouteGraphService.ConnectionSort.CHEAPEST, false);
+        // then
+        assertThat(connections).hasSize(1);
+        assertThat(flightIds(connections.get(0))).containsExactly(1);
+    }
+
+    @Test
+    void givenUnavailableLeg_whenFindConnectionsFiltered_thenSkipIt() {
+        // given
+        routeGraphService.onFlightChanged(FlightChangedEvent.saved(
+                new Flight(3, "SecondLeg", 100.0, Timestamp.valueOf("2030-10-10 10:00:00"), Timestamp.valueOf("2030-10-10 14:00:00"), "B", "C", false)
+        ));
+        // when
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", "2030-10-10", null, null, RouteGraphService.ConnectionSort.CHEAPEST, true);
+        // then
+        assertThat(connections).hasSize(1);
+        assertThat(flightIds(connections.get(0))).containsExactly(1);
+    }
+
+    @Test
+    void givenEditedFlight_whenFindConnections_thenUseNewEdge() {
+        // given
+        routeGraphService.onFlightChanged(FlightChangedEvent.saved(
+                new Flight(1, "Direct", 500.0, Timestamp.valueOf("2030-10-10 08:00:00"), Timestamp.valueOf("2030-10-10 12:00:00"), "A", "D", true)
+        ));
+        // when
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", "2030-10-10", null, null, RouteGraphService.ConnectionSort.FASTEST, false);
+        // then
+        assertThat(connections).hasSize(1);
+        assertThat(flightIds(connections.get(0))).containsExactly(2, 3);
+    }
+
+    @Test
+    void givenDeletedFlights_whenFindConnections_thenThrowNotFound() {
+        // given
+        routeGraphService.onFlightChanged(FlightChangedEvent.deleted(1));
+        routeGraphService.onFlightChanged(FlightChangedEvent.deleted(3));
+        // when
+        // then
+        assertThatThrownBy(() -> routeGraphService.findConnections("A", "C", "2030-10-10", null, null, RouteGraphService.ConnectionSort.CHEAPEST, false))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Connections not found")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenFlightsChangedElsewhere_whenRebuild_thenUseReloadedFlights() {
+        // given
+        given(flightRepository.findAll()).willReturn(List.of(
+                new Flight(1, "Direct", 500.0, Timestamp.valueOf("2030-10-10 08:00:00"), Timestamp.valueOf("2030-10-10 12:00:00"), "A", "C", true)
+        ));
+        // when
+        routeGraphService.rebuild();
+        List<ConnectionResponseDto> connections = routeGraphService.findConnections("A", "C", "2030-10-10", null, null, RouteGraphService.ConnectionSort.CHEAPEST, false);
+        // then
+        assertThat(connections).hasSize(1);
+        assertThat(flightIds(connections.get(0))).containsExactly(1);
+    }
+
+    @Test
+    void givenFlightsDeletedDuringRebuild_whenFindConnections_thenKeepDeletions() {
+        // given
+        List<Flight> snapshot = flightRepository.findAll();
+        given(flightRepository.findAll()).willAnswer(invocation -> {
+            routeGraphService.onFlightChanged(FlightChangedEvent.deleted(1));
+            routeGraphService.onFlightChanged(FlightChangedEvent.deleted(3));
+            return snapshot;
+        });
+        // when
+        routeGraphService.rebuild();
+        // then
+        assertThatThrownBy(() -> routeGraphService.findConnections("A", "C", "2030-10-10", null, null, RouteGraphService.ConnectionSort.CHEAPEST, false))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenSameStartAndEndLocation_whenFindConnections_thenThrowBadRequest() {
+        // given
+        // when
+        // then
+        assertThatThrownBy(() -> routeGraphService.findConnections("A", "A", null, null, null, RouteGraphService.ConnectionSort.CHEAPEST, false))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST);
+    }
+}